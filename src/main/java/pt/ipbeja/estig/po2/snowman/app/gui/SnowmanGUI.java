@@ -1,8 +1,10 @@
 package pt.ipbeja.estig.po2.snowman.app.gui;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
@@ -21,6 +23,9 @@ import pt.ipbeja.estig.po2.snowman.app.model.*;
  * @author Paulo Neves
  */
 public class SnowmanGUI extends Application {
+    /// Parsed maps shared by every game window, so restarting a level does not read it again
+    private static final MapTemplateCache TEMPLATES = new MapTemplateCache();
+
     private final String mapFileName;
     private final String playerName;
     private BoardModel boardModel;
@@ -31,9 +36,9 @@ public class SnowmanGUI extends Application {
         this.mapFileName = mapFileName;
         this.playerName = playerName;
 
-        //Load the map from resource file
+        //Load the map from the template cache, reading the resource file only the first time
         reader = new MapReader();
-        boardModel = reader.loadMapFromFile("/" + this.mapFileName);
+        boardModel = reader.loadLevel(TEMPLATES, "/" + this.mapFileName);
     }
 
     /**
@@ -102,10 +107,56 @@ public class SnowmanGUI extends Application {
         MenuItem redoItem = new MenuItem("Redo");
         redoItem.setOnAction(e -> boardModel.redo());
 
-        editMenu.getItems().addAll(undoItem, redoItem);
+        MenuItem hintItem = new MenuItem("Hint");
+        hintItem.setOnAction(e -> showHint(hintItem));
+
+        editMenu.getItems().addAll(undoItem, redoItem, hintItem);
 
         menuBar.getMenus().addAll(editMenu);
 
         return new VBox(menuBar);
     }
+
+    /**
+     * Shows the best next move found within the hint budget. The search runs on a
+     * background thread, on a copy of the position, so the board stays responsive; the
+     * menu item is disabled until the answer is shown.
+     *
+     * @param hintItem the menu item asking for hints
+     */
+    private void showHint(MenuItem hintItem) {
+        SnowmanState position = boardModel.toState();
+        if (SnowmanRules.isSolved(position)) {
+            showHintAlert("O boneco de neve já está construído.");
+            return;
+        }
+        HintService hints = boardModel.getHintService();
+        hintItem.setDisable(true);
+        Thread search = new Thread(() -> {
+            Direction direction;
+            try {
+                direction = hints.hint(position, HintService.DEFAULT_BUDGET_MILLIS);
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> hintItem.setDisable(false));
+                throw e;
+            }
+            Platform.runLater(() -> {
+                hintItem.setDisable(false);
+                showHintAlert(direction == null
+                        ? "Não há nenhuma solução a partir desta posição."
+                        : "Próximo movimento: " + direction);
+            });
+        }, "hint");
+        search.setDaemon(true);
+        search.start();
+    }
+
+    /// Shows a hint message
+    private void showHintAlert(String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Hint");
+        alert.setHeaderText("Hint");
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
 }
@@ -0,0 +1,147 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import pt.ipbeja.estig.po2.snowman.app.model.interfaces.Heuristic;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AStarSolver finds a solution with the minimum number of moves, expanding first the
+ * states with the lowest moves-so-far plus heuristic estimate. With an admissible
+ * Heuristic (one that never overestimates) the solution is optimal, like the one of
+ * BreadthFirstSolver, while far fewer states are expanded.
+ * <p>
+ * States live in a StateTable with their best known move count; the open list is a
+ * LongHeap of packed (f, g, id) entries, ties broken towards deeper states. A state
+ * reached again by a shorter path is reopened, so heuristics that are admissible but
+ * not consistent still give optimal solutions. States the heuristic reports as dead
+ * ends are never stored.
+ * <p>
+ * When the search reaches its limit after a solution was found, but before it was proven
+ * the shortest, that solution is returned with the LIMIT_REACHED status.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class AStarSolver extends Solver {
+    /// Largest f and g values that fit in a heap entry
+    private static final int MAX_COST = 0xFFFF;
+
+    private final Heuristic heuristic;
+
+    /**
+     * Creates an A* solver using the SnowmanHeuristic.
+     */
+    public AStarSolver() {
+        this(new SnowmanHeuristic());
+    }
+
+    /**
+     * @param heuristic the admissible estimate of the remaining moves
+     */
+    public AStarSolver(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public Solution solve(SnowmanState start) {
+        long startNanos = System.nanoTime();
+        // An estimate costs O(cells), so on large maps the clock is read more often
+        clockMask = Integer.highestOneBit(Math.max(1, Math.min(256, (1 << 16) / start.cells()))) - 1;
+        if (SnowmanRules.isSolved(start)) {
+            return solved(start, List.of(), 1, 0, startNanos);
+        }
+        int startEstimate = heuristic.estimate(start);
+        if (startEstimate == Heuristic.DEAD_END) {
+            return failed(Solution.Status.UNSOLVABLE, 1, 0, startNanos);
+        }
+
+        StateCodec codec = new StateCodec(start);
+        StateTable states = new StateTable(codec.words(), 1 << 14);
+        long[] key = new long[codec.words()];
+        codec.encode(start, key, 0);
+        states.add(key, 0, -1, -1);
+        int[] costs = new int[1 << 14];
+        LongHeap open = new LongHeap();
+        open.add(entry(startEstimate, 0, 0));
+
+        SnowmanState scratch = start.copy();
+        StateDelta journal = new StateDelta();
+        int bestGoal = Integer.MAX_VALUE;
+        int goalParent = -1;
+        Direction goalMove = null;
+        long expanded = 0;
+
+        while (!open.isEmpty()) {
+            long entry = open.poll();
+            int f = (int) (entry >>> 48);
+            int g = MAX_COST - (int) ((entry >>> 32) & MAX_COST);
+            int id = (int) entry;
+            if (f >= bestGoal) {
+                break; // no open state can lead to a shorter solution
+            }
+            if (g != costs[id]) {
+                continue; // stale entry, the state was reopened with a lower cost
+            }
+            if (limitReached(states.size(), expanded, startNanos)) {
+                if (goalMove != null) {
+                    // Anytime answer: the shortest solution found so far
+                    return stoppedWith(start, path(states, goalParent, goalMove), states.size(), expanded,
+                            startNanos);
+                }
+                return failed(Solution.Status.LIMIT_REACHED, states.size(), expanded, startNanos);
+            }
+            expanded++;
+
+            states.key(id, key, 0);
+            scratch.setJournal(null);
+            codec.decode(key, 0, scratch);
+            scratch.setJournal(journal);
+
+            for (Direction direction : DIRECTIONS) {
+                journal.clear();
+                int result = SnowmanRules.step(scratch, direction);
+                if (result == SnowmanRules.BLOCKED) {
+                    continue;
+                }
+                int cost = g + 1;
+                if ((result & SnowmanRules.COMPLETED) != 0) {
+                    if (cost < bestGoal) {
+                        bestGoal = cost;
+                        goalParent = id;
+                        goalMove = direction;
+                    }
+                } else {
+                    int estimate = heuristic.estimate(scratch);
+                    if (estimate != Heuristic.DEAD_END) {
+                        codec.encode(scratch, key, 0);
+                        int child = states.indexOf(key, 0);
+                        if (child < 0) {
+                            child = states.add(key, 0, id, direction.ordinal());
+                            if (child == costs.length) {
+                                costs = Arrays.copyOf(costs, child * 2);
+                            }
+                            costs[child] = cost;
+                            open.add(entry(cost + estimate, cost, child));
+                        } else if (cost < costs[child]) {
+                            costs[child] = cost;
+                            states.reparent(child, id, direction.ordinal());
+                            open.add(entry(cost + estimate, cost, child));
+                        }
+                    }
+                }
+                scratch.revert(journal);
+            }
+        }
+
+        if (goalMove != null) {
+            return solved(start, path(states, goalParent, goalMove), states.size(), expanded, startNanos);
+        }
+        return failed(Solution.Status.UNSOLVABLE, states.size(), expanded, startNanos);
+    }
+
+    /// Packs f, g and a state id into a heap entry ordered by f, then by larger g
+    private static long entry(int f, int g, int id) {
+        return (long) Math.min(f, MAX_COST) << 48 | (long) (MAX_COST - Math.min(g, MAX_COST)) << 32 | id;
+    }
+}
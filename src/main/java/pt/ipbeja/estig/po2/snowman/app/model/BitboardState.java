@@ -0,0 +1,388 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BitboardState is an alternate, search-oriented representation of a game position.
+ * Every layer of the board is a bitboard over the grid (bit n of the layer is cell n in
+ * row-major order), and all the layers share a single long array:
+ * - BLOCK, SNOW and SNOWMAN terrain (cells in none of them have no snow)
+ * - OCCUPIED, the union of all the snowball layers
+ * - one layer per SnowballType
+ * <p>
+ * Together with the monster cell this is the whole state: a 5x6 map needs 11 longs.
+ * Moves follow the same rules as SnowmanRules, with legality checked by bit tests and
+ * changes applied by setting and clearing bits. Whole-board queries such as the cells
+ * the monster can walk to are computed with word-parallel shifts.
+ * <p>
+ * A BitboardState can be built from a SnowmanState or a BoardModel and converted back to both.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class BitboardState {
+    private static final SnowballType[] TYPES = SnowballType.values();
+
+    /// Terrain and occupancy layers, followed by one layer per SnowballType
+    private static final int BLOCK = 0;
+    private static final int SNOW = 1;
+    private static final int SNOWMAN = 2;
+    private static final int OCCUPIED = 3;
+    private static final int FIRST_TYPE = 4;
+    private static final int LAYERS = FIRST_TYPE + TYPES.length;
+
+    private final int rows;
+    private final int cols;
+    private final int words;
+    private final long[] bits;
+    private int monsterCell;
+
+    /// Creates an empty state: no blocks, no snow, no snowballs, monster in cell 0
+    private BitboardState(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.words = (rows * cols + 63) >>> 6;
+        this.bits = new long[LAYERS * words];
+    }
+
+    /// Copy constructor
+    private BitboardState(BitboardState other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.words = other.words;
+        this.bits = other.bits.clone();
+        this.monsterCell = other.monsterCell;
+    }
+
+    /**
+     * Builds the bitboards of a kernel state.
+     *
+     * @param state the state to convert
+     * @return a BitboardState holding the same position
+     */
+    public static BitboardState from(SnowmanState state) {
+        BitboardState board = new BitboardState(state.rows(), state.cols());
+        for (int cell = 0; cell < state.cells(); cell++) {
+            switch (state.terrain(cell)) {
+                case BLOCK -> board.set(BLOCK, cell);
+                case SNOW -> board.set(SNOW, cell);
+                case SNOWMAN -> board.set(SNOWMAN, cell);
+                default -> {
+                }
+            }
+            SnowballType type = state.ball(cell);
+            if (type != null) {
+                board.putBall(cell, type);
+            }
+        }
+        board.monsterCell = state.monsterCell();
+        return board;
+    }
+
+    /**
+     * Builds the bitboards of the current position of a BoardModel, as loaded by MapReader.
+     *
+     * @param boardModel the board to convert
+     * @return a BitboardState holding the same position
+     */
+    public static BitboardState from(BoardModel boardModel) {
+        return from(boardModel.toState());
+    }
+
+    /**
+     * @return a kernel state holding the same position
+     */
+    public SnowmanState toState() {
+        SnowmanState state = new SnowmanState(rows, cols);
+        for (int cell = 0; cell < rows * cols; cell++) {
+            PositionContent content = terrain(cell);
+            if (content != PositionContent.NO_SNOW) {
+                state.setTerrain(cell, content);
+            }
+            SnowballType type = ball(cell);
+            if (type != null) {
+                state.setBall(cell, type);
+            }
+        }
+        state.setMonster(monsterCell);
+        return state;
+    }
+
+    /**
+     * @return a new BoardModel holding the same position, with its own Monster and Snowball objects
+     */
+    public BoardModel toBoardModel() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        List<Snowball> snowballs = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            List<PositionContent> line = new ArrayList<>();
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                line.add(terrain(cell));
+                SnowballType type = ball(cell);
+                if (type != null) {
+                    snowballs.add(new Snowball(row, col, type));
+                }
+            }
+            content.add(line);
+        }
+        return new BoardModel(content, new Monster(monsterCell / cols, monsterCell % cols), snowballs);
+    }
+
+    /**
+     * @return an independent copy of this state
+     */
+    public BitboardState copy() {
+        return new BitboardState(this);
+    }
+
+    /// Number of rows of the board
+    public int rows() {
+        return rows;
+    }
+
+    /// Number of columns of the board
+    public int cols() {
+        return cols;
+    }
+
+    /// Cell of the monster
+    public int monsterCell() {
+        return monsterCell;
+    }
+
+    /// Content of the given cell
+    public PositionContent terrain(int cell) {
+        if (test(BLOCK, cell)) return PositionContent.BLOCK;
+        if (test(SNOW, cell)) return PositionContent.SNOW;
+        if (test(SNOWMAN, cell)) return PositionContent.SNOWMAN;
+        return PositionContent.NO_SNOW;
+    }
+
+    /// Type of the snowball on the given cell, or null if there is none
+    public SnowballType ball(int cell) {
+        if (!test(OCCUPIED, cell)) {
+            return null;
+        }
+        for (int type = 0; type < TYPES.length; type++) {
+            if (test(FIRST_TYPE + type, cell)) {
+                return TYPES[type];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves the monster one cell in the given direction, with the same rules and result
+     * flags as SnowmanRules.step.
+     *
+     * @param direction the direction to move
+     * @return the SnowmanRules result flags, BLOCKED if nothing changed
+     */
+    public int step(Direction direction) {
+        int target = neighbour(monsterCell, direction);
+        if (target < 0) {
+            return SnowmanRules.BLOCKED;
+        }
+
+        int result = SnowmanRules.MOVED;
+        if (test(OCCUPIED, target)) {
+            SnowballType type = ball(target);
+            if (SnowmanRules.isStack(type)) {
+                return unstack(target, type, direction) ? SnowmanRules.UNSTACKED : SnowmanRules.BLOCKED;
+            }
+            int pushed = push(target, type, direction);
+            if (pushed == SnowmanRules.BLOCKED) {
+                return SnowmanRules.BLOCKED;
+            }
+            result |= pushed;
+        }
+
+        monsterCell = target;
+
+        // A snowman can also be completed one cell further in the same direction
+        int base = neighbour(target, direction);
+        return base < 0 ? result : result | completeSnowman(base);
+    }
+
+    /**
+     * Returns the cells the monster can walk to without pushing anything, as a bitboard
+     * with the same layout as the layers (bit n is cell n). Computed by flooding the
+     * free cells with word-parallel shifts, one step in all four directions per pass.
+     *
+     * @return the reachable cells, including the monster cell
+     */
+    public long[] reachable() {
+        int cells = rows * cols;
+        long[] free = new long[words];
+        long[] notFirstCol = new long[words];
+        long[] notLastCol = new long[words];
+        for (int cell = 0; cell < cells; cell++) {
+            int word = cell >>> 6;
+            long bit = 1L << cell;
+            if ((bits[BLOCK * words + word] & bit) == 0 && (bits[OCCUPIED * words + word] & bit) == 0) {
+                free[word] |= bit;
+            }
+            if (cell % cols != 0) notFirstCol[word] |= bit;
+            if (cell % cols != cols - 1) notLastCol[word] |= bit;
+        }
+
+        long[] reached = new long[words];
+        long[] shifted = new long[words];
+        reached[monsterCell >>> 6] |= 1L << monsterCell;
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            long[] next = reached.clone();
+            orShifted(next, reached, shifted, 1, notFirstCol);     // east: cell + 1
+            orShifted(next, reached, shifted, -1, notLastCol);     // west: cell - 1
+            orShifted(next, reached, shifted, cols, null);         // south: cell + cols
+            orShifted(next, reached, shifted, -cols, null);        // north: cell - cols
+            for (int word = 0; word < words; word++) {
+                next[word] &= free[word];
+                if (next[word] != reached[word]) {
+                    grew = true;
+                }
+            }
+            reached = next;
+        }
+        return reached;
+    }
+
+    /// ORs source shifted by the given number of cells (positive towards higher cells), masked, into target
+    private void orShifted(long[] target, long[] source, long[] scratch, int shift, long[] mask) {
+        Arrays.fill(scratch, 0);
+        int wordShift = Math.abs(shift) >>> 6;
+        int bitShift = Math.abs(shift) & 63;
+        for (int word = 0; word < words; word++) {
+            long value = source[word];
+            if (value == 0) continue;
+            if (shift > 0) {
+                int to = word + wordShift;
+                if (to < words) scratch[to] |= value << bitShift;
+                if (bitShift != 0 && to + 1 < words) scratch[to + 1] |= value >>> (64 - bitShift);
+            } else {
+                int to = word - wordShift;
+                if (to >= 0) scratch[to] |= value >>> bitShift;
+                if (bitShift != 0 && to - 1 >= 0) scratch[to - 1] |= value << (64 - bitShift);
+            }
+        }
+        for (int word = 0; word < words; word++) {
+            target[word] |= mask == null ? scratch[word] : scratch[word] & mask[word];
+        }
+    }
+
+    /// Pushes the snowball of the given type on a cell; same rules as SnowmanRules.push
+    private int push(int cell, SnowballType type, Direction direction) {
+        if (type == SnowballType.COMPLETE) {
+            return SnowmanRules.BLOCKED;
+        }
+        int target = neighbour(cell, direction);
+        if (target < 0) {
+            return SnowmanRules.BLOCKED;
+        }
+
+        if (test(OCCUPIED, target)) {
+            SnowballType stacked = SnowmanRules.stackedType(type, ball(target));
+            if (stacked == null) {
+                return SnowmanRules.BLOCKED;
+            }
+            removeBall(cell, type);
+            removeBall(target, ball(target));
+            putBall(target, stacked);
+            if (stacked == SnowballType.COMPLETE) {
+                clear(SNOW, target);
+                set(SNOWMAN, target);
+                return SnowmanRules.PUSHED | SnowmanRules.STACKED | SnowmanRules.COMPLETED;
+            }
+            return SnowmanRules.PUSHED | SnowmanRules.STACKED;
+        }
+
+        // Rolling over snow consumes it and grows the snowball
+        removeBall(cell, type);
+        if (test(SNOW, target)) {
+            clear(SNOW, target);
+            type = SnowmanRules.grown(type);
+        }
+        putBall(target, type);
+        return SnowmanRules.PUSHED;
+    }
+
+    /// Splits a stack; same rules as SnowmanRules.unstack
+    private boolean unstack(int cell, SnowballType type, Direction direction) {
+        int target = neighbour(cell, direction);
+        if (target < 0 || test(OCCUPIED, target)) {
+            return false;
+        }
+        removeBall(cell, type);
+        putBall(target, SnowmanRules.topOf(type));
+        putBall(cell, SnowmanRules.bottomOf(type));
+        return true;
+    }
+
+    /// Completes a snowman with its base on the given cell; same rules as SnowmanRules.completeSnowman
+    private int completeSnowman(int base) {
+        int top = base - cols;
+        if (top < 0 || !test(FIRST_TYPE + SnowballType.BIG_MID.ordinal(), base)
+                || !test(FIRST_TYPE + SnowballType.SMALL.ordinal(), top)) {
+            return SnowmanRules.BLOCKED;
+        }
+        removeBall(top, SnowballType.SMALL);
+        removeBall(base, SnowballType.BIG_MID);
+        putBall(base, SnowballType.COMPLETE);
+        clear(SNOW, base);
+        set(SNOWMAN, base);
+        return SnowmanRules.COMPLETED;
+    }
+
+    /// Next cell in the given direction, or -1 if it is outside the board or a BLOCK
+    private int neighbour(int cell, Direction direction) {
+        int row = cell / cols + direction.getRowDelta();
+        int col = cell % cols + direction.getColDelta();
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        int next = row * cols + col;
+        return test(BLOCK, next) ? -1 : next;
+    }
+
+    private void putBall(int cell, SnowballType type) {
+        set(OCCUPIED, cell);
+        set(FIRST_TYPE + type.ordinal(), cell);
+    }
+
+    private void removeBall(int cell, SnowballType type) {
+        clear(OCCUPIED, cell);
+        clear(FIRST_TYPE + type.ordinal(), cell);
+    }
+
+    private boolean test(int layer, int cell) {
+        return (bits[layer * words + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    private void set(int layer, int cell) {
+        bits[layer * words + (cell >>> 6)] |= 1L << cell;
+    }
+
+    private void clear(int layer, int cell) {
+        bits[layer * words + (cell >>> 6)] &= ~(1L << cell);
+    }
+
+    /**
+     * Two states are equal when they have the same size, layers and monster cell.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitboardState other)) return false;
+        return rows == other.rows && cols == other.cols && monsterCell == other.monsterCell
+                && Arrays.equals(bits, other.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(bits) + monsterCell;
+    }
+}
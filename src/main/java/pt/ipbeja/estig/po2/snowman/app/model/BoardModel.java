@@ -5,7 +5,9 @@ import pt.ipbeja.estig.po2.snowman.app.model.interfaces.MoveListener;
 import pt.ipbeja.estig.po2.snowman.app.model.interfaces.ScoreListener;
 import pt.ipbeja.estig.po2.snowman.app.model.interfaces.View;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -19,13 +21,21 @@ import java.util.List;
  * - Game board state and content (snow, blocks, empty spaces)
  * - Monster position and movement mechanics
  * - Snowball positions, stacking, and physics
- * - Undo/Redo functionality with complete state preservation
+ * - Undo/Redo functionality based on a journal of per-move changes
  * - Game progression tracking (moves, scores, completion)
  * - Event notification system for UI updates
  * <p>
- * The class implements a robust undo/redo system that captures complete game states
- * including monster position, all snowball positions and types, and board content.
- * This allows players to experiment with different strategies without penalty.
+ * The rules themselves live in the headless kernel (SnowmanRules applied to a
+ * SnowmanState). BoardModel is the adapter on top of it: it runs the kernel, keeps the
+ * Monster and Snowball objects used by the GUI in sync with the changes the kernel
+ * recorded, and fires the View and listener events. The Monster and Snowball objects
+ * returned by this class mirror the state and should not be modified directly.
+ * <p>
+ * The class implements an undo/redo system that records, for every move, only what
+ * the move changed (monster cell, moved/stacked/unstacked snowballs and terrain cells).
+ * Undoing or redoing a move therefore costs time proportional to the move, not to the
+ * board, which allows long histories. Players can experiment with different strategies
+ * without penalty.
  * <p>
  * Key Design Patterns:
  * - Observer Pattern: Notifies multiple listeners of game state changes
@@ -38,9 +48,20 @@ import java.util.List;
 public class BoardModel {
     // CORE GAME STATE
     /**
-     * 2D matrix representing the game board content (snow, blocks, empty spaces)
+     * Lookup table used to decode content ordinals recorded in the history
+     */
+    private static final PositionContent[] CONTENTS = PositionContent.values();
+
+    /**
+     * Lookup table used to decode snowball type ordinals recorded in the history
+     */
+    private static final SnowballType[] TYPES = SnowballType.values();
+
+    /**
+     * Compact state the rules are applied to: terrain, snowballs, monster cell and hash,
+     * indexed row-major (cell (row, col) lives at index row * cols + col)
      */
-    private List<List<PositionContent>> boardContent;
+    private SnowmanState state;
 
     /**
      * The player-controlled monster that pushes snowballs
@@ -52,6 +73,20 @@ public class BoardModel {
      */
     private List<Snowball> snowballs;
 
+    /**
+     * Occupancy grid mapping each cell (same row-major indexing as the state) to the
+     * snowball standing on it, or null. Kept in sync with the snowballs list so lookups
+     * by position are constant time.
+     */
+    private Snowball[] occupancy;
+
+    /**
+     * Snowball objects that left the board (stacked on another one or undone) and
+     * can be reused when a snowball appears again, so stacking and unstacking do
+     * not allocate.
+     */
+    private final ArrayDeque<Snowball> spareSnowballs = new ArrayDeque<>();
+
     // === EVENT NOTIFICATION SYSTEM ===
     /**
      * Primary view interface for rendering game state changes
@@ -86,45 +121,148 @@ public class BoardModel {
 
     // === UNDO/REDO SYSTEM ===
     /**
-     * Current position in the history timeline.
-     * -1 means no history, 0+ indicates current state index
+     * Default number of moves kept in the history.
      */
-    private int currentStateIndex = -1;
+    public static final int DEFAULT_HISTORY_CAPACITY = 1000;
 
     /**
-     * Complete history of game states for undo/redo functionality.
-     * Each GameState contains a full snapshot of monster, snowballs, and board
+     * Journal of the moves made so far, oldest first, in a fixed-capacity ring buffer.
+     * Each entry holds the changes made by one move. When the buffer is full the
+     * oldest move is automatically dropped.
      */
-    private List<GameState> history = new ArrayList<>();
+    private final HistoryBuffer history;
 
     /**
-     * Maximum number of states to keep in memory to prevent excessive RAM usage.
-     * Older states are automatically purged when this limit is exceeded.
+     * Changes made since the last saved state, recorded by the state as the kernel
+     * applies them. They become a history entry when saveState() is called.
      */
-    private static final int MAX_HISTORY_SIZE = 50;
+    private StateDelta pendingChanges = new StateDelta();
+
+    // === HINTS ===
+    /**
+     * Searches and caches the best next moves of this map, created on the first hint
+     */
+    private HintService hintService;
+
+    /**
+     * Walk and push distances between the cells of this map, shared with every other
+     * board of the same map; looked up on the first request
+     */
+    private DistanceTable distances;
+
+    /**
+     * Map this board was last created or reset from, null if it was built from lists
+     */
+    private MapTemplate template;
 
     /**
      * Advanced constructor for creating a BoardModel from existing game data.
      * Used for loading saved games or creating custom board configurations.
      * <p>
-     * This constructor performs deep copying to ensure data integrity and prevent
-     * unintended modifications to the original data structures.
+     * This constructor copies the content into the compact state, so later
+     * changes to the original lists do not affect the board.
      *
      * @param content   2D matrix of PositionContent representing the board layout
      * @param monster   Monster instance with its current position
      * @param snowballs List of Snowball instances with their positions and types
      */
     public BoardModel(List<List<PositionContent>> content, Monster monster, List<Snowball> snowballs) {
+        this(content, monster, snowballs, DEFAULT_HISTORY_CAPACITY);
+    }
+
+    /**
+     * Creates a BoardModel whose undo history keeps up to historyCapacity moves.
+     *
+     * @param content         2D matrix of PositionContent representing the board layout
+     * @param monster         Monster instance with its current position
+     * @param snowballs       List of Snowball instances with their positions and types
+     * @param historyCapacity maximum number of moves that can be undone (at least 1)
+     */
+    public BoardModel(List<List<PositionContent>> content, Monster monster, List<Snowball> snowballs,
+                      int historyCapacity) {
+        this.history = new HistoryBuffer(historyCapacity);
         this.monster = monster;
         this.snowballs = new ArrayList<>(snowballs);
-        this.boardContent = new ArrayList<>();
+        this.state = SnowmanState.of(content, monster, snowballs);
+        rebuildOccupancy();
 
-        // Create deep copy of board content to ensure complete independence
-        for (List<PositionContent> row : content) {
-            this.boardContent.add(new ArrayList<>(row));
+        saveInitialState();
+    }
+
+    /**
+     * Creates a BoardModel at the start of a parsed map, without going through lists of
+     * PositionContent.
+     *
+     * @param template the parsed map
+     */
+    public BoardModel(MapTemplate template) {
+        this.history = new HistoryBuffer(DEFAULT_HISTORY_CAPACITY);
+        this.snowballs = new ArrayList<>(template.snowballCount());
+        resetFrom(template);
+    }
+
+    /**
+     * Puts this board back to the start of a parsed map, reusing its storage: the state
+     * arrays and occupancy grid when the map has the same size, the Monster and Snowball
+     * objects, and the undo history entries. The history is cleared; the view, listeners,
+     * game and map file name are kept, and the view is asked to redraw the board.
+     * <p>
+     * Resetting a board costs O(cells) and, after the first reset to a map of a given
+     * size, allocates nothing, which is what BoardModelPool relies on.
+     *
+     * @param template the parsed map
+     */
+    public void resetFrom(MapTemplate template) {
+        int rows = template.rows();
+        int cols = template.cols();
+        if (state == null || state.rows() != rows || state.cols() != cols) {
+            state = new SnowmanState(rows, cols);
+            occupancy = new Snowball[rows * cols];
+        }
+        state.setJournal(null);
+        state.reset(template);
+
+        // Distances and hints only stay valid for the same map
+        if (template != this.template) {
+            hintService = null;
+            if (distances != null && !distances.matches(state)) {
+                distances = null;
+            }
+            this.template = template;
+        }
+
+        int monsterCell = template.monsterCell();
+        if (monsterCell < 0) {
+            monster = null;
+        } else if (monster == null) {
+            monster = new Monster(monsterCell / cols, monsterCell % cols);
+        } else {
+            monster.row = monsterCell / cols;
+            monster.col = monsterCell % cols;
+            monster.setPrevRow(0);
+            monster.setPrevCol(0);
+        }
+
+        // Every snowball leaves the board and the map's ones are placed again
+        for (Snowball snowball : snowballs) {
+            spareSnowballs.push(snowball);
+        }
+        snowballs.clear();
+        Arrays.fill(occupancy, null);
+        for (int i = 0; i < template.snowballCount(); i++) {
+            int cell = template.snowballCell(i);
+            Snowball snowball = obtainSnowball(cell / cols, cell % cols, SnowballType.SMALL);
+            snowballs.add(snowball);
+            occupancy[cell] = snowball;
         }
 
         saveInitialState();
+        if (view != null) {
+            view.updateBoard();
+        }
+        if (boardListener != null) {
+            boardListener.updateBoard();
+        }
     }
 
     // === DEPENDENCY INJECTION METHODS ===
@@ -198,23 +336,23 @@ public class BoardModel {
      */
     public void startGame() {
         // Clear any existing game state to ensure clean initialization
-        boardContent.clear();
         snowballs.clear();
 
         // Position monster at strategic starting location
         monster = new Monster(2, 0);
 
         // Create 5x5 board with snow on top row for snowball material
+        List<List<PositionContent>> content = new ArrayList<>();
         for (int i = 0; i < 5; i++) {
-            List<PositionContent> row = new ArrayList<>();
+            List<PositionContent> line = new ArrayList<>();
             for (int j = 0; j < 5; j++) {
                 if (i == 0) {
-                    row.add(PositionContent.SNOW);  // Snow source row
+                    line.add(PositionContent.SNOW);  // Snow source row
                 } else {
-                    row.add(PositionContent.NO_SNOW);  // Movement space
+                    line.add(PositionContent.NO_SNOW);  // Movement space
                 }
             }
-            boardContent.add(row);
+            content.add(line);
         }
 
         // Place initial snowballs in a line for easy access
@@ -222,10 +360,22 @@ public class BoardModel {
         snowballs.add(new Snowball(2, 1, SnowballType.SMALL));
         snowballs.add(new Snowball(2, 2, SnowballType.SMALL));
         snowballs.add(new Snowball(2, 3, SnowballType.SMALL));
+        state = SnowmanState.of(content, monster, snowballs);
+        rebuildOccupancy();
+        forgetMap();
 
         // Reset undo/redo system for new game
-        history.clear();
-        currentStateIndex = -1;
+        saveInitialState();
+    }
+
+    /**
+     * Drops what was computed for the previous layout (distances, hints and the map it
+     * was reset from), once the board no longer holds that map.
+     */
+    private void forgetMap() {
+        distances = null;
+        hintService = null;
+        template = null;
     }
 
     /**
@@ -240,8 +390,25 @@ public class BoardModel {
      */
     private void saveInitialState() {
         history.clear();
-        currentStateIndex = -1;
-        saveState();
+        pendingChanges.clear();
+        state.setJournal(pendingChanges);
+    }
+
+    /**
+     * Sets how many moves the undo history keeps. When the history is already
+     * longer than the new capacity, the oldest moves are dropped.
+     *
+     * @param capacity maximum number of moves that can be undone (at least 1)
+     */
+    public void setHistoryCapacity(int capacity) {
+        history.setCapacity(capacity);
+    }
+
+    /**
+     * @return Maximum number of moves kept in the undo history
+     */
+    public int getHistoryCapacity() {
+        return history.capacity();
     }
 
     /**
@@ -274,14 +441,24 @@ public class BoardModel {
      * @return Number of rows in the game board
      */
     public int getRowCount() {
-        return boardContent.size();
+        return state.rows();
     }
 
     /**
      * @return Number of columns in the game board
      */
     public int getColCount() {
-        return boardContent.isEmpty() ? 0 : boardContent.get(0).size();
+        return state.cols();
+    }
+
+    /**
+     * Returns a copy of the current game state for the headless kernel (SnowmanRules).
+     * Changes made to the copy do not affect this board.
+     *
+     * @return an independent SnowmanState holding the current position
+     */
+    public SnowmanState toState() {
+        return state.copy();
     }
 
     /**
@@ -295,10 +472,10 @@ public class BoardModel {
      * @return PositionContent at the specified location, or BLOCK if out of bounds
      */
     public PositionContent getPositionContent(int row, int col) {
-        if (row < 0 || row >= getRowCount() || col < 0 || col >= getColCount()) {
+        if (!state.inside(row, col)) {
             return PositionContent.BLOCK; // Treat out-of-bounds as impassable walls
         }
-        return boardContent.get(row).get(col);
+        return state.terrain(state.cell(row, col));
     }
 
     /**
@@ -347,12 +524,8 @@ public class BoardModel {
      * @return true if the position allows movement, false otherwise
      */
     public boolean validPosition(int newRow, int newCol) {
-        // First check boundaries to prevent array access errors
-        if (newRow < 0 || newRow >= getRowCount() || newCol < 0 || newCol >= getColCount()) {
-            return false;
-        }
-        // Then check if the position contains impassable terrain
-        return getPositionContent(newRow, newCol) != PositionContent.BLOCK;
+        // Checks the boundaries first, then whether the position contains impassable terrain
+        return state.passable(newRow, newCol);
     }
 
     /**
@@ -376,20 +549,126 @@ public class BoardModel {
     /**
      * Searches for a snowball at the specified coordinates.
      * <p>
-     * Uses linear search through the snowballs collection. While O(n) complexity,
-     * this is acceptable given the small number of snowballs typically in play.
+     * Reads the occupancy grid, so the lookup is constant time regardless of
+     * the board size or the number of snowballs in play.
      *
      * @param row Target row coordinate
      * @param col Target column coordinate
      * @return Snowball instance at that position, or null if none exists
      */
     public Snowball getSnowballInPosition(int row, int col) {
-        for (Snowball snowball : snowballs) {
-            if (snowball.getRow() == row && snowball.getCol() == col) {
-                return snowball;
+        if (!state.inside(row, col)) {
+            return null;
+        }
+        return occupancy[state.cell(row, col)];
+    }
+
+    /**
+     * Returns a Snowball object for the given cell and type, reusing one that left
+     * the board when available. The snowball is not placed on the board.
+     */
+    private Snowball obtainSnowball(int row, int col, SnowballType type) {
+        Snowball snowball = spareSnowballs.poll();
+        if (snowball == null) {
+            return new Snowball(row, col, type);
+        }
+        snowball.row = row;
+        snowball.col = col;
+        snowball.setType(type);
+        return snowball;
+    }
+
+    /**
+     * Applies the changes the kernel recorded since the given index of the pending delta
+     * to the Monster and Snowball objects, and notifies the board listener of every
+     * terrain change.
+     *
+     * @param from index of the first change to apply
+     */
+    private void syncMirror(int from) {
+        for (int i = from; i < pendingChanges.size(); i++) {
+            mirror(pendingChanges, i, true);
+            if (boardListener != null && pendingChanges.kind(i) == StateDelta.TERRAIN) {
+                int cell = pendingChanges.a(i);
+                boardListener.onTerrainChanged(cell / state.cols(), cell % state.cols(),
+                        CONTENTS[pendingChanges.c(i)]);
+            }
+        }
+    }
+
+    /**
+     * Applies one recorded change to the Monster and Snowball objects, either as it
+     * happened (forward) or its inverse. The state itself is updated separately.
+     *
+     * @param delta   the delta holding the change
+     * @param index   the position of the change inside the delta
+     * @param forward true to redo the change, false to undo it
+     */
+    private void mirror(StateDelta delta, int index, boolean forward) {
+        int cols = state.cols();
+        int a = delta.a(index);
+        int b = delta.b(index);
+        int c = delta.c(index);
+
+        switch (delta.kind(index)) {
+            case StateDelta.MONSTER -> {
+                int cell = forward ? b : a;
+                monster.setPrevRow(monster.getRow());
+                monster.setPrevCol(monster.getCol());
+                monster.row = cell / cols;
+                monster.col = cell % cols;
             }
+            case StateDelta.SNOWBALL_MOVED -> {
+                int from = forward ? a : b;
+                int to = forward ? b : a;
+                Snowball snowball = occupancy[from];
+                occupancy[from] = null;
+                snowball.row = to / cols;
+                snowball.col = to % cols;
+                occupancy[to] = snowball;
+            }
+            case StateDelta.SNOWBALL_ADDED, StateDelta.SNOWBALL_REMOVED -> {
+                boolean add = (delta.kind(index) == StateDelta.SNOWBALL_ADDED) == forward;
+                if (add) {
+                    Snowball snowball = obtainSnowball(a / cols, a % cols, TYPES[b]);
+                    snowballs.add(snowball);
+                    occupancy[a] = snowball;
+                } else {
+                    // The snowball leaves the board and is kept for reuse
+                    Snowball snowball = occupancy[a];
+                    snowballs.remove(snowball);
+                    occupancy[a] = null;
+                    spareSnowballs.push(snowball);
+                }
+            }
+            case StateDelta.SNOWBALL_TYPE -> occupancy[a].setType(TYPES[forward ? c : b]);
+        }
+    }
+
+    /**
+     * Returns a 64-bit Zobrist hash of the current game state: monster cell, the
+     * content of every cell and the cell and type of every snowball.
+     * <p>
+     * The hash is maintained incrementally by every move, stack, unstack, terrain change,
+     * undo and redo, so reading it is O(1). Equal states on boards of the same size hash
+     * equally, which makes it suitable for transposition tables and duplicate detection.
+     * Snowball types changed directly through Snowball.setType are not tracked.
+     *
+     * @return the hash of the current state
+     */
+    public long stateHash() {
+        return state.hash();
+    }
+
+    /**
+     * Recreates the occupancy grid from the snowballs collection.
+     * Used whenever the whole set of snowballs is replaced at once.
+     */
+    private void rebuildOccupancy() {
+        occupancy = new Snowball[state.cells()];
+        for (Snowball snowball : snowballs) {
+            occupancy[state.cell(snowball.getRow(), snowball.getCol())] = snowball;
         }
-        return null;
     }
 
     /**
@@ -398,23 +677,13 @@ public class BoardModel {
      * This is essential for push mechanics - the monster can only interact with
      * snowballs that are immediately in front of it.
      * <p>
-     * Uses switch expression for clean directional logic without complex if-else chains.
-     * <p>
-     * + @param direction Direction the monster is facing/moving
-     *
+     * @param direction Direction the monster is facing/moving
      * @return Snowball directly in front of monster, or null if none exists
      */
     public Snowball snowballInFrontOfMonster(Direction direction) {
-        int row = monster.getRow();
-        int col = monster.getCol();
-
-        // Calculate adjacent position based on direction using modern switch syntax
-        return switch (direction) {
-            case UP -> getSnowballInPosition(row - 1, col);
-            case DOWN -> getSnowballInPosition(row + 1, col);
-            case LEFT -> getSnowballInPosition(row, col - 1);
-            case RIGHT -> getSnowballInPosition(row, col + 1);
-        };
+        // Calculate adjacent position from the direction's offsets
+        return getSnowballInPosition(monster.getRow() + direction.getRowDelta(),
+                monster.getCol() + direction.getColDelta());
     }
 
     /**
@@ -431,26 +700,29 @@ public class BoardModel {
      * - Capture old positions BEFORE any changes
      * - Attempt movement (which may fail)
      * - Only save state and notify listeners if movement succeeds
+     * <p>
+     * The rules are applied by the headless kernel (see step). Positions are kept as plain
+     * ints and Position objects are only created for the listeners, so a move on a board
+     * without listeners does not allocate.
      *
      * @param direction Direction for monster movement
      * @return true if movement was successful, false if blocked or invalid
      */
     public boolean moveMonster(Direction direction) {
         // PRE-MOVEMENT STATE CAPTURE
-        // Store original positions before any modifications for rollback capability
-        Position oldPosition = new Position(monster.getRow(), monster.getCol());
+        // Store original positions before any modifications for the notifications
+        int oldRow = monster.getRow();
+        int oldCol = monster.getCol();
         Snowball snowball = snowballInFrontOfMonster(direction);
-        Position oldSnowballPosition = null;
 
-        // If there's a snowball to push, record its current position
-        if (snowball != null) {
-            oldSnowballPosition = new Position(snowball.getRow(), snowball.getCol());
-        }
+        // If there's a snowball to push, its current position is the cell in front of the monster
+        int oldSnowballRow = oldRow + direction.getRowDelta();
+        int oldSnowballCol = oldCol + direction.getColDelta();
 
         // MOVEMENT ATTEMPT
-        // Delegate actual movement logic to Monster class, which handles:
+        // Delegate actual movement logic to the kernel, which handles:
         // Boundary checking, collision detection, snowball pushing
-        boolean moved = monster.move(direction, this);
+        boolean moved = (step(direction) & SnowmanRules.MOVED) != 0;
 
         // POST-MOVEMENT PROCESSING
         // Only proceed if movement was successful
@@ -458,31 +730,34 @@ public class BoardModel {
             // Save current state to undo history AFTER successful move
             saveState();
 
-            Position currentPosition = new Position(monster.getRow(), monster.getCol());
-
-            // UI NOTIFICATION SYSTEM
-            // Notify view of visual changes requiring screen updates
-            if (view != null) {
-                // Clear monster sprite from old position
-                view.onMonsterCleared(oldPosition);
-                // Draw monster sprite at new position
-                view.onMonsterMoved(currentPosition);
-
-                // If a snowball was pushed, update its visual representation
-                if (snowball != null) {
-                    view.onSnowballMoved(snowball, oldSnowballPosition);
+            if (view != null || moveListener != null || game != null) {
+                Position oldPosition = new Position(oldRow, oldCol);
+                Position currentPosition = new Position(monster.getRow(), monster.getCol());
+
+                // UI NOTIFICATION SYSTEM
+                // Notify view of visual changes requiring screen updates
+                if (view != null) {
+                    // Clear monster sprite from old position
+                    view.onMonsterCleared(oldPosition);
+                    // Draw monster sprite at new position
+                    view.onMonsterMoved(currentPosition);
+
+                    // If a snowball was pushed, update its visual representation
+                    if (snowball != null) {
+                        view.onSnowballMoved(snowball, new Position(oldSnowballRow, oldSnowballCol));
+                    }
                 }
-            }
 
-            // EVENT LISTENER NOTIFICATIONS
-            // Notify movement listener for game logic tracking
-            if (moveListener != null) {
-                moveListener.onMove(oldPosition, currentPosition);
-            }
+                // EVENT LISTENER NOTIFICATIONS
+                // Notify movement listener for game logic tracking
+                if (moveListener != null) {
+                    moveListener.onMove(oldPosition, currentPosition);
+                }
 
-            // Update game session data (move counting, logging)
-            if (game != null) {
-                game.onMove(oldPosition, currentPosition);
+                // Update game session data (move counting, logging)
+                if (game != null) {
+                    game.onMove(oldPosition, currentPosition);
+                }
             }
         }
 
@@ -490,65 +765,101 @@ public class BoardModel {
     }
 
     /**
-     * Delegates snowball movement to the Snowball class.
+     * Moves the monster one cell with the headless kernel, without saving the history.
      * <p>
-     * This method maintains consistent interface while allowing
-     * Snowball objects to handle their own movement logic.
+     * The changes recorded by the kernel are applied to the Monster and Snowball objects,
+     * then the view is notified of any unstack, stack or completed snowman. Completing a
+     * snowman also stores the game details when a view is attached.
+     *
+     * @param direction Direction for monster movement
+     * @return the SnowmanRules result flags of the step
+     */
+    int step(Direction direction) {
+        int from = pendingChanges.size();
+        int result = SnowmanRules.step(state, direction);
+        syncMirror(from);
+
+        // The cell in front of the monster holds the stack that was split, the stack that
+        // was formed or the snowman that was completed
+        int row = monster.getRow() + direction.getRowDelta();
+        int col = monster.getCol() + direction.getColDelta();
+        if ((result & SnowmanRules.UNSTACKED) != 0) {
+            if (view != null) {
+                view.onSnowballUnstacked(getSnowballInPosition(row + direction.getRowDelta(),
+                        col + direction.getColDelta()), getSnowballInPosition(row, col));
+            }
+        } else {
+            notifyStacking(result, row, col);
+        }
+        return result;
+    }
+
+    /**
+     * Pushes a snowball one cell with the headless kernel. The snowball grows over snow
+     * and stacks when pushed onto another snowball whose type allows it.
      *
      * @param direction Direction to move the snowball
      * @param snowball  Snowball instance to move
      * @return true if movement succeeded, false otherwise
      */
     public boolean moveSnowball(Direction direction, Snowball snowball) {
-        return snowball.move(direction, this);
+        int row = snowball.getRow();
+        int col = snowball.getCol();
+        int from = pendingChanges.size();
+        int result = SnowmanRules.push(state, state.cell(row, col), direction);
+        syncMirror(from);
+        notifyStacking(result, row + direction.getRowDelta(), col + direction.getColDelta());
+        return result != SnowmanRules.BLOCKED;
     }
 
     /**
      * Attempts to stack one snowball on top of another.
      * <p>
-     * This method delegates the stacking logic to the Snowball class. If the two snowballs can be stacked,
-     * it removes them from the collection, creates a new stacked snowball of the resulting type,
-     * updates the board content and notifies the view. If the new snowball completes a snowman,
-     * it also triggers the appropriate view callbacks and stores the game details.
+     * This method delegates the stacking logic to the kernel. If the two snowballs can be stacked,
+     * the top one leaves the board, the bottom one becomes the resulting stacked type and the
+     * view is notified. If the new snowball completes a snowman, it also triggers the
+     * appropriate view callbacks and stores the game details.
      *
      * @param top    the Snowball instance to be placed on top
      * @param bottom the Snowball instance that will become the base of the stack
      * @return true if the snowballs were successfully stacked; false otherwise
      */
     public boolean tryStackSnowballs(Snowball top, Snowball bottom) {
-        // Attempt to stack the two snowballs
-        SnowballType newType = top.stackOn(bottom);
-        if (newType == null) return false;
+        int from = pendingChanges.size();
+        int result = SnowmanRules.stack(state, state.cell(top.getRow(), top.getCol()),
+                state.cell(bottom.getRow(), bottom.getCol()));
+        if (result == SnowmanRules.BLOCKED) return false;
 
-        // Update the snowballs collection
-        snowballs.remove(top);
-        snowballs.remove(bottom);
+        syncMirror(from);
+        notifyStacking(result, bottom.getRow(), bottom.getCol());
+        return true;
+    }
 
-        // Create a new snowball at the bottom position
-        Snowball stacked = new Snowball(bottom.getRow(), bottom.getCol(), newType);
-        snowballs.add(stacked);
+    /**
+     * Notifies the view of a stack formed and of a snowman completed at the given cell,
+     * as reported by the kernel result flags, and stores the game details of a completed game.
+     *
+     * @param result the SnowmanRules result flags
+     * @param row    the row of the stack or snowman
+     * @param col    the column of the stack or snowman
+     */
+    private void notifyStacking(int result, int row, int col) {
+        if (view == null) {
+            return;
+        }
 
         //Notify the view about the stacking
-        Position bottomPos = new Position(bottom.getRow(), bottom.getCol());
-        if (view != null) {
-            view.onSnowballStacked(bottomPos, newType);
+        if ((result & SnowmanRules.STACKED) != 0) {
+            Snowball stack = getSnowballInPosition(row, col);
+            view.onSnowballStacked(new Position(row, col), stack.getType());
         }
 
         //Check if a complete snowman was formed
-        if (newType == SnowballType.COMPLETE) {
-            //update the board content to show the snowman at the position
-            boardContent.get(bottom.getRow()).set(bottom.getCol(), PositionContent.SNOWMAN);
-
-
-            if (view != null) {
-                view.onSnowmanCreated(bottomPos, newType);
-                // The base is at (bottom.getRow(), bottom.getCol()), so the “head” is one row below:
-                Position snowmanPos = new Position(bottom.getRow() + 1, bottom.getCol());
-                storeGameDetails(snowmanPos);
-            }
+        if ((result & SnowmanRules.COMPLETED) != 0) {
+            view.onSnowmanCreated(new Position(row, col), SnowballType.COMPLETE);
+            // The base is at (row, col), so the “head” is one row below:
+            storeGameDetails(new Position(row + 1, col));
         }
-
-        return true;
     }
 
     /**
@@ -609,7 +920,7 @@ public class BoardModel {
         // Iterate over the board to find the cell marked as SNOWMAN
         for (int row = 0; row < getRowCount(); row++) {
             for (int col = 0; col < getColCount(); col++) {
-                if (boardContent.get(row).get(col) == PositionContent.SNOWMAN) {
+                if (state.terrain(state.cell(row, col)) == PositionContent.SNOWMAN) {
                     snowmanPosition = new Position(row, col);
                     break;
                 }
@@ -651,7 +962,7 @@ public class BoardModel {
 
             } else {
                 // otherwise, append symbol based on board content
-                PositionContent content = boardContent.get(row).get(col);
+                PositionContent content = state.terrain(state.cell(row, col));
                 switch (content) {
                     case BLOCK -> line.append("\tB\t");
                     case SNOW -> line.append("\tS\t");
@@ -668,34 +979,30 @@ public class BoardModel {
      * <p>
      * This method identifies the bottom and top parts of the provided stacked snowball.
      * It then verifies whether the top part can be unstacked into the specified direction.
-     * If valid, it removes the combined snowball from the collection, re-adds its separate
-     * parts, and notifies the view. Returns true if the unstack operation succeeds.
+     * If valid, the combined snowball becomes the bottom part, the top part is placed in the
+     * next cell, and the view is notified. Returns true if the unstack operation succeeds.
      *
      * @param stack     the combined Snowball instance to be unstacked
      * @param direction the Direction in which the top part will be placed after unstacking
      * @return true if unstacking succeeds; false otherwise
      */
     public boolean unstackSnowballs(Snowball stack, Direction direction) {
-        // Identify bottom and top snowball parts from the stacked one
-        Snowball bottom = stack.getBottom();
-        Snowball top = stack.getTop(direction);
-
-        // Check that both parts exist and the top can actually be unstacked
-        if (bottom != null && top != null && canUnstack(top.getRow(), top.getCol())) {
-            // Update the snowballs collection – remove combined, add separate parts
-            snowballs.remove(stack);
-            snowballs.add(top);
-            snowballs.add(bottom);
-
-            // Notify the view with the top and the bottom balls
-            if (view != null) {
-                view.onSnowballUnstacked(top, bottom);
-            }
+        // The kernel checks that the stack has two parts and that the top can actually be unstacked
+        int from = pendingChanges.size();
+        if (!SnowmanRules.unstack(state, state.cell(stack.getRow(), stack.getCol()), direction)) {
+            return false;
+        }
 
-            return true;
+        // The combined snowball keeps its cell as the bottom part; the top one is placed next to it
+        syncMirror(from);
+
+        // Notify the view with the top and the bottom balls
+        if (view != null) {
+            view.onSnowballUnstacked(getSnowballInPosition(stack.getRow() + direction.getRowDelta(),
+                    stack.getCol() + direction.getColDelta()), stack);
         }
 
-        return false;
+        return true;
     }
 
     /**
@@ -713,119 +1020,42 @@ public class BoardModel {
     }
 
     /**
-     * Verifies if the snowballs at and above the given position form a complete snowman.
+     * Saves the changes made since the last saved state as a new history entry,
+     * maintaining a maximum history size.
      * <p>
-     * This method checks whether there is a “BIG_MID” snowball at the specified position
-     * and a “SMALL” snowball directly above it. If both exist, it removes them and replaces
-     * them with a single “COMPLETE” snowman snowball. It also updates the board content
-     * and notifies the view if applicable.
-     *
-     * @param snowmanPos the Position where the base (“BIG_MID”) of the potential snowman is located
-     */
-    void checkCompleteSnowman(Position snowmanPos) {
-        //Locate the base snowball and verify its type
-        Snowball base = getSnowballInPosition(snowmanPos.getRow(), snowmanPos.getCol());
-        if (base == null || base.getType() != SnowballType.BIG_MID) return;
-
-        //Locate the top snowball directly above the base
-        Snowball top = getSnowballInPosition(snowmanPos.getRow() - 1, snowmanPos.getCol());
-        if (top != null && top.getType() == SnowballType.SMALL) {
-            snowballs.remove(base);
-            snowballs.remove(top);
-
-            // Create and add the COMPLETE snowman snowball
-            Snowball snowman = new Snowball(snowmanPos.getRow(), snowmanPos.getCol(), SnowballType.COMPLETE);
-            snowballs.add(snowman);
-
-            // update the board content to reflect the new snowman
-            boardContent.get(snowmanPos.getRow()).set(snowmanPos.getCol(), PositionContent.SNOWMAN);
-
-            if (view != null) {
-                view.onSnowmanCreated(snowmanPos, SnowballType.COMPLETE);
-            }
-        }
-    }
-
-    /**
-     * Saves the current game state to the history stack, maintaining a maximum history size.
-     * <p>
-     * This method performs the following steps:
-     * 1. Removes any “future” states if the user has undone moves and then makes a new move.
-     * 2. If the history exceeds MAX_HISTORY_SIZE, drops the oldest state to make room.
-     * 3. Clones the current game state and appends it to the history list.
-     * 4. Advances the currentStateIndex to point to the newly saved snapshot.
+     * Does nothing if the board has not changed since the last saved state. Otherwise the
+     * pending changes are pushed into the history ring buffer, which discards any “future”
+     * moves left over from undo and, when full, drops the oldest move, all in constant time.
      */
     public void saveState() {
-        // Discard any states “ahead” of the currentStateIndex
-        while (history.size() > currentStateIndex + 1) {
-            history.remove(history.size() - 1);
-        }
-
-        // Enforce maximum history size
-        // If we’ve reached MAX_HISTORY_SIZE, remove the oldest state (index 0)
-        // and adjust currentStateIndex accordingly.
-        if (history.size() >= MAX_HISTORY_SIZE) {
-            history.remove(0);
-            currentStateIndex--;
-        }
-
-        // Clone the current game state and append to history
-        GameState snapshot = cloneCurrentState();
-        history.add(snapshot);
-        currentStateIndex++; // Point to the newly added snapshot
-    }
-
-    /**
-     * Creates and returns a deep copy of the current game state.
-     * <p>
-     * This method performs the following steps:
-     * 1. Deep-copies the board content into a new list of lists.
-     * 2. Deep-copies each Snowball into a new list.
-     * 3. Creates a new Monster instance at the same position.
-     * 4. Constructs a new GameState using the cloned monster, snowballs list, and board content.
-     *
-     * @return a new GameState object that is an exact duplicate of the current state
-     */
-    private GameState cloneCurrentState() {
-        // Copy the board content
-        List<List<PositionContent>> boardCopy = new ArrayList<>();
-        for (List<PositionContent> row : boardContent) {
-
-            // Create a new list for each row to avoid shared references
-            boardCopy.add(new ArrayList<>(row));
-        }
-
-        // Copy the snowballs list
-        List<Snowball> snowballCopy = new ArrayList<>();
-
-        // Create a new Snowball instance with the same row, column, and type
-        for (Snowball snowball : snowballs) {
-            snowballCopy.add(new Snowball(snowball.getRow(), snowball.getCol(), snowball.getType()));
+        if (pendingChanges.isEmpty()) {
+            return;
         }
 
-        // Clone the monster
-        Monster clonedMonster = new Monster(monster.getRow(), monster.getCol());
-
-        // Construct and return the new GameState
-        return new GameState(clonedMonster, snowballCopy, boardCopy);
+        // Append the recorded changes and start a new pending delta, reusing the entry
+        // the ring buffer overwrote (if any) so a full history does not allocate
+        StateDelta reusable = history.push(pendingChanges);
+        pendingChanges = reusable != null ? reusable : new StateDelta();
+        pendingChanges.clear();
+        state.setJournal(pendingChanges);
     }
 
     /**
-     * Undoes the last action by reverting to the previous game state in the history.
+     * Undoes the last action by reverting the changes recorded for it.
      * <p>
-     * This method checks if an undo operation is possible. If so, it decrements the
-     * currentStateIndex to point to the previous snapshot, restores that state, and
-     * notifies the view to refresh the board. Returns true if the undo succeeds.
+     * This method checks if an undo operation is possible. If so, it discards any
+     * changes that were not saved yet, reverts the last recorded move and notifies
+     * the view to refresh the board. Returns true if the undo succeeds.
      *
      * @return true if the game state was successfully reverted; false otherwise
      */
     public boolean undo() {
         //Check if undo is possible
-        if (currentStateIndex > 0) {
-            // Move index back to the previous state
-            currentStateIndex--;
-            // Restore game to the selected snapshot
-            restoreState(history.get(currentStateIndex));
+        if (history.canUndo()) {
+            // Drop unsaved changes, then revert the previous move
+            revert(pendingChanges);
+            pendingChanges.clear();
+            revert(history.undo());
 
             // Notify the view to update the board display
             if (view != null) {
@@ -840,21 +1070,21 @@ public class BoardModel {
     }
 
     /**
-     * Reapplies an undone action by advancing to the next game state in the history.
+     * Reapplies an undone action by replaying the changes recorded for it.
      * <p>
-     * This method checks if a redo operation is possible. If so, it increments the
-     * currentStateIndex to point to the next snapshot, restores that state, and
-     * notifies the view to refresh the board. Returns true if the redo succeeds.
+     * This method checks if a redo operation is possible. If so, it discards any
+     * changes that were not saved yet, replays the next recorded move and notifies
+     * the view to refresh the board. Returns true if the redo succeeds.
      *
      * @return true if the game state was successfully reapplied; false otherwise
      */
     public boolean redo() {
         // Check if redo is possible
-        if (currentStateIndex < history.size() - 1) {
-            // Advance index to the next state
-            currentStateIndex++;
-            //Restore game to the selected snapshot
-            restoreState(history.get(currentStateIndex));
+        if (history.canRedo()) {
+            // Drop unsaved changes, then replay the next move
+            revert(pendingChanges);
+            pendingChanges.clear();
+            replay(history.redo());
 
             // Notify the view to update the board display
             if (view != null) {
@@ -869,37 +1099,92 @@ public class BoardModel {
     }
 
     /**
-     * Restores the game to a previously saved state.
+     * Returns the shortest walk and push distances between the cells of this map,
+     * computed once per map on its BLOCK cells.
+     *
+     * @return the distance table of the map
+     */
+    public DistanceTable getDistances() {
+        if (distances == null) {
+            distances = DistanceTable.of(state);
+        }
+        return distances;
+    }
+
+    /**
+     * Returns the best next move from the current position, searching for at most
+     * HintService.DEFAULT_BUDGET_MILLIS.
+     *
+     * @return the direction to press, or null if the snowman is built or cannot be built
+     */
+    public Direction hint() {
+        return hint(HintService.DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * Returns the best next move from the current position, within a time budget.
      * <p>
-     * This method clears the current board content, snowballs list, and monster,
-     * then repopulates them using the data from the provided GameState instance.
+     * The states of a solution found are cached, so asking again after following a
+     * hint answers immediately. When the budget runs out before a solution is found,
+     * the move that looks closest to a snowman is returned.
      *
-     * @param state the GameState snapshot to restore
+     * @param budgetMillis maximum time to search, in milliseconds
+     * @return the direction to press, or null if the snowman is built or cannot be built
      */
-    private void restoreState(GameState state) {
-        // Restore the board content
-        boardContent.clear();
-        // Deep-copy each row of the saved board content into the current board
-        for (List<PositionContent> row : state.boardContent()) {
-            boardContent.add(new ArrayList<>(row));
+    public Direction hint(long budgetMillis) {
+        return getHintService().hint(state, budgetMillis);
+    }
+
+    /**
+     * Returns the hint service of this map, created on the first request and replaced
+     * when the layout changes.
+     * <p>
+     * To search away from the thread that plays, pass the service a copy of the position
+     * (toState) and do not ask for other hints until it answers: the service is not
+     * thread-safe.
+     *
+     * @return the hint service of the map
+     */
+    public HintService getHintService() {
+        if (hintService == null) {
+            hintService = new HintService();
         }
-        // Restore the snowballs list
-        // Remove any existing snowballs
-        snowballs.clear();
-        // For each saved Snowball, create a new instance with the same position and type
-        for (Snowball s : state.snowballs()) {
-            snowballs.add(new Snowball(s.getRow(), s.getCol(), s.getType()));
+        return hintService;
+    }
+
+    /**
+     * Applies the inverse of every change in the delta, from the last one to the first,
+     * to the state and to the Monster and Snowball objects.
+     *
+     * @param delta the changes to revert
+     */
+    private void revert(StateDelta delta) {
+        for (int i = delta.size() - 1; i >= 0; i--) {
+            state.apply(delta, i, false);
+            mirror(delta, i, false);
+        }
+    }
+
+    /**
+     * Applies every change in the delta again, in the order they were recorded,
+     * to the state and to the Monster and Snowball objects.
+     *
+     * @param delta the changes to replay
+     */
+    private void replay(StateDelta delta) {
+        for (int i = 0; i < delta.size(); i++) {
+            state.apply(delta, i, true);
+            mirror(delta, i, true);
         }
-        // Restore the monster’s position
-        monster = new Monster(state.monster().getRow(), state.monster().getCol());
     }
 
     /**
      * Sets the content of a specific board cell and notifies the listener of any terrain change.
      * <p>
      * This method first checks that the provided row and column indices are within the valid board range.
-     * If valid, it updates the boardContent at the specified location to the new PositionContent,
-     * then informs the boardListener (if registered) about the terrain change.
+     * If valid, it updates the state at the specified location to the new PositionContent,
+     * then informs the boardListener (if registered) about the terrain change. The board
+     * no longer holds its original map, so its distances and hints are recomputed.
      *
      * @param row     the row index of the cell to update
      * @param col     the column index of the cell to update
@@ -907,14 +1192,12 @@ public class BoardModel {
      */
     public void setPositionContent(int row, int col, PositionContent content) {
         // Validate row and column bounds
-        if (row >= 0 && row < getRowCount() && col >= 0 && col < getColCount()) {
-            // Update the board content
-            boardContent.get(row).set(col, content);
-
-            // Notify the listener about the terrain change
-            if (boardListener != null) {
-                boardListener.onTerrainChanged(row, col, content);
-            }
+        if (state.inside(row, col)) {
+            // Update the board content; the listener is notified as the change is applied
+            int from = pendingChanges.size();
+            state.setTerrain(state.cell(row, col), content);
+            syncMirror(from);
+            forgetMap();
         }
     }
 }
\ No newline at end of file
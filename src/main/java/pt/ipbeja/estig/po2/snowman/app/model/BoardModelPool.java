@@ -0,0 +1,122 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayDeque;
+
+/**
+ * BoardModelPool keeps BoardModels of finished games so a new game can reuse one instead
+ * of allocating a board, its state arrays, history and pieces again.
+ * <p>
+ * acquire hands out a board reset to the start of a map (BoardModel.resetFrom), or a new
+ * one when the pool is empty; release detaches a board from its view, listeners and game
+ * and keeps it, unless the pool already holds capacity boards. A released board must not
+ * be used by its previous owner any more, nor released again while it is free. It counts the boards created, reused and
+ * discarded. All methods are thread-safe; a board itself is not.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class BoardModelPool {
+    /// Boards kept by default
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private final int capacity;
+    private final ArrayDeque<BoardModel> free;
+    private long created;
+    private long reused;
+    private long discarded;
+
+    /// Pool of up to DEFAULT_CAPACITY free boards
+    public BoardModelPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the most free boards kept (at least 1)
+     */
+    public BoardModelPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.free = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Returns a board at the start of a map, reusing a free one when available.
+     *
+     * @param template the parsed map
+     * @return a board without view, listeners or game and with an empty undo history
+     */
+    public BoardModel acquire(MapTemplate template) {
+        BoardModel board;
+        synchronized (this) {
+            board = free.poll();
+            if (board == null) {
+                created++;
+            } else {
+                reused++;
+            }
+        }
+        if (board == null) {
+            return new BoardModel(template);
+        }
+        board.resetFrom(template);
+        return board;
+    }
+
+    /**
+     * Gives a board back to the pool once its game is over.
+     *
+     * @param board the board, not used by its owner afterwards
+     * @throws IllegalStateException if the board is already free in the pool
+     */
+    public synchronized void release(BoardModel board) {
+        for (BoardModel kept : free) {
+            if (kept == board) {
+                throw new IllegalStateException("board already released");
+            }
+        }
+        board.setView(null);
+        board.setMoveListener(null);
+        board.setBoardListener(null);
+        board.setScoreListener(null);
+        board.setGame(null);
+        board.setMapFileName(null);
+        if (free.size() < capacity) {
+            free.push(board);
+        } else {
+            discarded++;
+        }
+    }
+
+    /// Number of free boards kept
+    public synchronized int size() {
+        return free.size();
+    }
+
+    /// Most free boards kept
+    public int capacity() {
+        return capacity;
+    }
+
+    /// Boards allocated because the pool was empty
+    public synchronized long getCreated() {
+        return created;
+    }
+
+    /// Boards handed out again after a reset
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    /// Boards released while the pool was full
+    public synchronized long getDiscarded() {
+        return discarded;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BoardModelPool " + free.size() + "/" + capacity + " - " + created + " created - " + reused
+                + " reused - " + discarded + " discarded";
+    }
+}
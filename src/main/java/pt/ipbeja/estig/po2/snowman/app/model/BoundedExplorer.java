@@ -0,0 +1,202 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * BoundedExplorer walks the state space of a map breadth-first, up to a number of states,
+ * remembering the visited states in an off-heap TranspositionTable. It does not look for
+ * a solution: it measures how fast states can be generated and how much memory each one
+ * costs, to size the searches of large maps.
+ * <p>
+ * The frontier is a queue of StateCodec keys in a long array, so the only heap memory
+ * that grows with the search is the queue itself. States holding a complete snowman are
+ * counted but not expanded. A new state the table refuses to store (a full bucket with
+ * the NEVER or DEPTH_PREFERRED policy) is counted as rejected and not explored, so it is
+ * never counted twice. With the ALWAYS policy a stored state may be evicted, and then
+ * stored and explored again if it is reached later; the table counts those replacements.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class BoundedExplorer {
+    private final long budgetBytes;
+    private final TranspositionTable.ReplacementPolicy policy;
+
+    /**
+     * @param budgetBytes memory budget of the transposition table
+     * @param policy      its replacement policy
+     */
+    public BoundedExplorer(long budgetBytes, TranspositionTable.ReplacementPolicy policy) {
+        this.budgetBytes = budgetBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Explores the states reachable from the current position of a board.
+     *
+     * @param board     the board to explore; it is not modified
+     * @param maxStates stop after visiting this many states
+     * @return what was explored, and at which cost
+     */
+    public Result explore(BoardModel board, long maxStates) {
+        return explore(board.toState(), maxStates);
+    }
+
+    /**
+     * Explores the states reachable from a state; the state is not modified.
+     *
+     * @param start     the state to explore from
+     * @param maxStates stop after visiting this many states
+     * @return what was explored, and at which cost
+     */
+    public Result explore(SnowmanState start, long maxStates) {
+        long startNanos = System.nanoTime();
+        TranspositionTable table = new TranspositionTable(budgetBytes, policy);
+        StateCodec codec = new StateCodec(start);
+        int words = codec.words();
+
+        // FIFO queue of keys: [head, tail) in units of keys, compacted when half is consumed
+        long[] queue = new long[1024 * words];
+        int head = 0;
+        int tail = 0;
+        // BFS level of the states being expanded, which ends after levelEnd states were dequeued
+        int level = 0;
+        long dequeued = 0;
+        long levelEnd = 1;
+
+        SnowmanState scratch = start.copy();
+        StateDelta journal = new StateDelta();
+        codec.encode(start, queue, 0);
+        tail++;
+        table.put(start.hash(), 0, 0);
+        long states = 1;
+        long rejected = 0;
+        long enqueued = 1;
+        long expanded = 0;
+        long solved = SnowmanRules.isSolved(start) ? 1 : 0;
+
+        while (head < tail && states < maxStates) {
+            if (dequeued++ == levelEnd) {
+                level++;
+                levelEnd = enqueued;
+            }
+            scratch.setJournal(null);
+            codec.decode(queue, head * words, scratch);
+            scratch.setJournal(journal);
+            head++;
+            expanded++;
+            if (SnowmanRules.isSolved(scratch)) {
+                continue;
+            }
+
+            for (Direction direction : Direction.values()) {
+                journal.clear();
+                if (SnowmanRules.step(scratch, direction) == SnowmanRules.BLOCKED) {
+                    continue;
+                }
+                long hash = scratch.hash();
+                if (table.contains(hash)) {
+                    scratch.revert(journal);
+                    continue;
+                }
+                if (!table.put(hash, level + 1, level + 1)) {
+                    rejected++;
+                } else {
+                    states++;
+                    if (SnowmanRules.isSolved(scratch)) {
+                        solved++;
+                    }
+                    if (tail * words == queue.length) {
+                        if (head * 2 >= tail) {
+                            System.arraycopy(queue, head * words, queue, 0, (tail - head) * words);
+                            tail -= head;
+                            head = 0;
+                        } else {
+                            queue = Arrays.copyOf(queue, queue.length * 2);
+                        }
+                    }
+                    codec.encode(scratch, queue, tail * words);
+                    tail++;
+                    enqueued++;
+                }
+                scratch.revert(journal);
+                if (states >= maxStates) {
+                    break;
+                }
+            }
+        }
+        return new Result(states, rejected, expanded, solved, table, (long) queue.length * Long.BYTES,
+                System.nanoTime() - startNanos);
+    }
+
+    /**
+     * What an exploration visited and what it cost
+     */
+    public static final class Result {
+        private final long states;
+        private final long rejected;
+        private final long expanded;
+        private final long solvedStates;
+        private final TranspositionTable table;
+        private final long queueBytes;
+        private final long elapsedNanos;
+
+        Result(long states, long rejected, long expanded, long solvedStates, TranspositionTable table,
+               long queueBytes, long elapsedNanos) {
+            this.states = states;
+            this.rejected = rejected;
+            this.expanded = expanded;
+            this.solvedStates = solvedStates;
+            this.table = table;
+            this.queueBytes = queueBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /// Number of states visited and stored in the table; a state evicted by ALWAYS and reached again counts again
+        public long getStates() {
+            return states;
+        }
+
+        /// Number of new states the table refused to store, which were not explored
+        public long getRejected() {
+            return rejected;
+        }
+
+        /// Number of states whose moves were generated
+        public long getExpanded() {
+            return expanded;
+        }
+
+        /// Number of visited states holding a complete snowman
+        public long getSolvedStates() {
+            return solvedStates;
+        }
+
+        /// The table used, with its hit and miss counters
+        public TranspositionTable getTable() {
+            return table;
+        }
+
+        /// Wall time of the exploration
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /// States visited per second
+        public double getStatesPerSecond() {
+            return states * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        /// Bytes used per state held in the table: the memory of the table plus the queue array
+        public double getBytesPerState() {
+            return (table.bytes() + queueBytes) / (double) Math.max(1, table.size());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d states - %d rejected - %d expanded - %d solved - %.0f states/s"
+                            + " - %.1f bytes/state - %s", states, rejected, expanded, solvedStates, getStatesPerSecond(),
+                    getBytesPerState(), table);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.List;
+
+/**
+ * BreadthFirstSolver finds a solution with the minimum number of moves by exploring
+ * the states level by level.
+ * <p>
+ * Visited states are kept as compact StateCodec keys in a StateTable. Since the table
+ * numbers the states in insertion order, it also serves as the BFS queue: the states
+ * of each level are exactly the ids stored after the previous level. States are decoded
+ * into a single scratch SnowmanState, and every move is undone through the state's
+ * journal, so expanding a state does not allocate.
+ * <p>
+ * With deadlock pruning enabled, new states the DeadlockAnalyzer proves unsolvable are
+ * not stored.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class BreadthFirstSolver extends Solver {
+
+    @Override
+    public Solution solve(SnowmanState start) {
+        long startNanos = System.nanoTime();
+        if (SnowmanRules.isSolved(start)) {
+            return solved(start, List.of(), 1, 0, startNanos);
+        }
+
+        StateCodec codec = new StateCodec(start);
+        StateTable visited = new StateTable(codec.words(), 1 << 16);
+        long[] key = new long[codec.words()];
+        codec.encode(start, key, 0);
+        visited.add(key, 0, -1, -1);
+
+        SnowmanState scratch = start.copy();
+        StateDelta journal = new StateDelta();
+        DeadlockAnalyzer deadlocks = pruneDeadlocks ? new DeadlockAnalyzer(start) : null;
+
+        // The table is the queue: expand the states in the order they were stored
+        for (int node = 0; node < visited.size(); node++) {
+            if (limitReached(visited.size(), node, startNanos)) {
+                return failed(Solution.Status.LIMIT_REACHED, visited.size(), node, startNanos);
+            }
+            visited.key(node, key, 0);
+            scratch.setJournal(null);
+            codec.decode(key, 0, scratch);
+            scratch.setJournal(journal);
+
+            for (Direction direction : DIRECTIONS) {
+                journal.clear();
+                int result = SnowmanRules.step(scratch, direction);
+                if (result == SnowmanRules.BLOCKED) {
+                    continue;
+                }
+                if ((result & SnowmanRules.COMPLETED) != 0) {
+                    return solved(start, path(visited, node, direction), visited.size(), node + 1, startNanos);
+                }
+                codec.encode(scratch, key, 0);
+                if (deadlocks == null || !visited.contains(key, 0) && !deadlocks.isDeadlocked(scratch)) {
+                    visited.add(key, 0, node, direction.ordinal());
+                }
+                scratch.revert(journal);
+            }
+        }
+        return failed(Solution.Status.UNSOLVABLE, visited.size(), visited.size(), startNanos);
+    }
+}
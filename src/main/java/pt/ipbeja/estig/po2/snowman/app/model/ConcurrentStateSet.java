@@ -0,0 +1,154 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * ConcurrentStateSet is the visited set of ParallelBreadthFirstSolver: StateCodec keys
+ * spread over many independently locked open-addressing shards, so threads adding
+ * states rarely wait for each other.
+ * <p>
+ * Every key remembers the BFS level it was first reached at and a code identifying how
+ * it was reached (parent index * 4 + direction). When several parents reach a new state
+ * during the same level the smallest code wins, whatever the order the threads ran in,
+ * which keeps the search deterministic.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+final class ConcurrentStateSet {
+    private final int words;
+    private final Shard[] shards;
+    private final int shardShift;
+
+    /**
+     * @param words     number of longs in a key
+     * @param shardBits log2 of the number of shards
+     */
+    ConcurrentStateSet(int words, int shardBits) {
+        this.words = words;
+        this.shards = new Shard[1 << shardBits];
+        this.shardShift = 32 - shardBits;
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(words);
+        }
+    }
+
+    /**
+     * Offers a state reached at the given level.
+     *
+     * @param key    the array holding the key
+     * @param offset index of the first long of the key
+     * @param level  the BFS level the state was reached at
+     * @param code   how it was reached; the smallest code of the level is kept
+     */
+    void offer(long[] key, int offset, int level, int code) {
+        int hash = StateTable.hash(key, offset, words);
+        shards[shardShift == 32 ? 0 : hash >>> shardShift].offer(key, offset, hash, level, code);
+    }
+
+    /// Total number of states in the set
+    long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    /// Number of states added since the last call to drain
+    int added() {
+        int added = 0;
+        for (Shard shard : shards) {
+            added += shard.addedCount;
+        }
+        return added;
+    }
+
+    /**
+     * Copies the keys and codes of the states added since the last call, and forgets them.
+     * Must not run concurrently with offer.
+     *
+     * @param keys  receives the keys, one after the other
+     * @param codes receives the codes, in the same order
+     * @return the number of states copied
+     */
+    int drain(long[] keys, int[] codes) {
+        int count = 0;
+        for (Shard shard : shards) {
+            for (int i = 0; i < shard.addedCount; i++) {
+                int id = shard.added[i];
+                System.arraycopy(shard.keys, id * words, keys, count * words, words);
+                codes[count++] = shard.codes[id];
+            }
+            shard.addedCount = 0;
+        }
+        return count;
+    }
+
+    /**
+     * One lock-protected open-addressing table
+     */
+    private static final class Shard {
+        private final int words;
+        private long[] keys;
+        private int[] levels;
+        private int[] codes;
+        private int size;
+        private int[] slots = new int[64];
+        private int[] added = new int[32];
+        private int addedCount;
+
+        Shard(int words) {
+            this.words = words;
+            this.keys = new long[32 * words];
+            this.levels = new int[32];
+            this.codes = new int[32];
+        }
+
+        synchronized void offer(long[] key, int offset, int hash, int level, int code) {
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                int id = slots[slot] - 1;
+                if (Arrays.equals(keys, id * words, id * words + words, key, offset, offset + words)) {
+                    if (levels[id] == level && code < codes[id]) {
+                        codes[id] = code;
+                    }
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int id = size++;
+            if (id == levels.length) {
+                keys = Arrays.copyOf(keys, id * 2 * words);
+                levels = Arrays.copyOf(levels, id * 2);
+                codes = Arrays.copyOf(codes, id * 2);
+            }
+            System.arraycopy(key, offset, keys, id * words, words);
+            levels[id] = level;
+            codes[id] = code;
+            slots[slot] = id + 1;
+            if (addedCount == added.length) {
+                added = Arrays.copyOf(added, addedCount * 2);
+            }
+            added[addedCount++] = id;
+
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = StateTable.hash(keys, id * words, words) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+    }
+}
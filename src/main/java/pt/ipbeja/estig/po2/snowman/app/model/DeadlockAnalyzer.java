@@ -0,0 +1,335 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * DeadlockAnalyzer detects states from which the snowman can no longer be built, so
+ * searches can prune them.
+ * <p>
+ * Static analysis, done once per map: a snowball can only move by being pushed, which
+ * needs a passable cell on both sides of it, so from every cell there is a region of
+ * cells a snowball could ever reach (ignoring the other snowballs and the monster), read
+ * from the push distances of the map's DistanceTable. A
+ * snowball in a corner formed by blocks or the board edge can never leave its cell. A
+ * cell is dead for a snowball type when a snowball of that type placed there could take
+ * no part in any snowman: it could neither become the bottom, nor become the middle and
+ * be pushed onto a bottom, nor be the top.
+ * <p>
+ * Dynamic analysis, per state: the snowman needs three different units (single
+ * snowballs, or the two parts of a stack) for its bottom, middle and top roles. A unit
+ * can only take a role it can still grow into, with enough snow left inside its region,
+ * and the three regions must share a cell where the snowman stands. A stack that can
+ * never be split stays as it is forever. If no assignment of the units to the roles is
+ * possible, the state is deadlocked. The check only over-approximates what the rules
+ * allow, so a deadlocked state really has no solution.
+ * <p>
+ * Instances keep scratch arrays and are not thread-safe.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class DeadlockAnalyzer {
+    /// Roles of the units in a snowman, also the size (SMALL 0, MID 1, BIG 2) they need
+    private static final int TOP = 0;
+    private static final int MIDDLE = 1;
+    private static final int BOTTOM = 2;
+
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    private final int words;
+
+    /// Cells a snowball standing on each cell could reach, words longs per cell
+    private final long[] reach;
+    /// Cells directly below the cells of reach, where a top could complete a snowman by walking
+    private final long[] below;
+    private final boolean[] mobile;
+    private final boolean[] blocked;
+    private final long[] initialSnow;
+
+    private final long[] snow;
+    /// Size of every unit, and per role the cells where each unit could take it
+    private int[] unitSizes = new int[8];
+    private long[][] masks;
+    private int units;
+
+    /**
+     * Analyses the map of the given state; the snowballs and the monster are ignored.
+     *
+     * @param map the state whose terrain is analysed
+     */
+    public DeadlockAnalyzer(SnowmanState map) {
+        this.rows = map.rows();
+        this.cols = map.cols();
+        this.cells = rows * cols;
+        this.words = Math.max(1, (cells + 63) >>> 6);
+        this.reach = new long[cells * words];
+        this.below = new long[cells * words];
+        this.mobile = new boolean[cells];
+        this.blocked = new boolean[cells];
+        this.initialSnow = new long[words];
+        this.snow = new long[words];
+        this.masks = new long[3][8 * words];
+
+        for (int cell = 0; cell < cells; cell++) {
+            blocked[cell] = map.terrain(cell) == PositionContent.BLOCK;
+            if (map.terrain(cell) == PositionContent.SNOW) {
+                set(initialSnow, 0, cell);
+            }
+        }
+        DistanceTable distances = DistanceTable.of(map);
+        for (int cell = 0; cell < cells; cell++) {
+            if (!blocked[cell]) {
+                computeReach(cell, distances);
+            }
+        }
+    }
+
+    /// Analyser for the map of a board
+    public static DeadlockAnalyzer of(BoardModel board) {
+        return new DeadlockAnalyzer(board.toState());
+    }
+
+    /**
+     * Records the cells a snowball starting on a cell can be pushed to, with the cells
+     * below them, in reach and below.
+     */
+    private void computeReach(int start, DistanceTable distances) {
+        int offset = start * words;
+        int reached = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (distances.push(start, cell) == DistanceTable.UNREACHABLE) {
+                continue;
+            }
+            set(reach, offset, cell);
+            reached++;
+            int under = cell + cols;
+            if (under < cells && !blocked[under]) {
+                set(below, offset, under);
+            }
+        }
+        mobile[start] = reached > 1;
+    }
+
+    /// True if a snowball standing on (row, col) could never leave it
+    public boolean isFrozen(int row, int col) {
+        return !blocked[row * cols + col] && !mobile[row * cols + col];
+    }
+
+    /**
+     * Tells whether a single snowball of the given type on (row, col) could never be part
+     * of a snowman on this map, whatever the other snowballs do.
+     *
+     * @param row  the row of the cell
+     * @param col  the column of the cell
+     * @param type SMALL, MID or BIG
+     * @return true if the cell is dead for that type; BLOCK cells are always dead
+     */
+    public boolean isDeadCell(int row, int col, SnowballType type) {
+        int cell = row * cols + col;
+        if (blocked[cell]) {
+            return true;
+        }
+        int size = size(type);
+        int snowLeft = count(reach, cell * words, initialSnow);
+        boolean bottom = canGrow(cell, BOTTOM - size, snowLeft);
+        boolean middle = size <= MIDDLE && mobile[cell] && canGrow(cell, MIDDLE - size, snowLeft);
+        boolean top = size == TOP && (mobile[cell] || cell + cols < cells && get(below, cell * words, cell + cols));
+        return !bottom && !middle && !top;
+    }
+
+    /**
+     * Tells whether the snowman can no longer be built from the given state.
+     *
+     * @param state a state of the analysed map
+     * @return true if the state has no solution
+     */
+    public boolean isDeadlocked(SnowmanState state) {
+        int snowTotal = 0;
+        Arrays.fill(snow, 0);
+        for (int cell = 0; cell < cells; cell++) {
+            if (state.terrain(cell) == PositionContent.SNOW) {
+                set(snow, 0, cell);
+                snowTotal++;
+            }
+        }
+
+        units = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            SnowballType type = state.ball(cell);
+            if (type == null) {
+                continue;
+            }
+            if (type == SnowballType.COMPLETE) {
+                return false;
+            }
+            if (!SnowmanRules.isStack(type)) {
+                addUnit(cell, size(type));
+            } else if (mobile[cell]) {
+                addUnit(cell, size(SnowmanRules.bottomOf(type)));
+                addUnit(cell, size(SnowmanRules.topOf(type)));
+            } else if (type == SnowballType.BIG_MID) {
+                // A frozen stack stays as it is: only a BIG_MID can still become a snowman
+                addFrozenPart(cell, BOTTOM);
+                addFrozenPart(cell, MIDDLE);
+            }
+        }
+
+        for (int bottom = 0; bottom < units; bottom++) {
+            if (empty(BOTTOM, bottom)) continue;
+            int bottomGrowth = BOTTOM - unitSizes[bottom];
+            for (int middle = 0; middle < units; middle++) {
+                if (middle == bottom || empty(MIDDLE, middle)) continue;
+                int growth = bottomGrowth + MIDDLE - unitSizes[middle];
+                if (growth > snowTotal) continue;
+                for (int top = 0; top < units; top++) {
+                    if (top != bottom && top != middle && meet(bottom, middle, top)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /// Tells whether the current position of a board of this map is deadlocked
+    public boolean isDeadlocked(BoardModel board) {
+        return isDeadlocked(board.toState());
+    }
+
+    /**
+     * Draws the dead cells of every snowball type, one grid per type, as in:
+     * <pre>
+     * MID: 2 dead cells
+     * #..B
+     * ....
+     * </pre>
+     * where B is a BLOCK, as in the map files, # a dead cell and . a live one.
+     *
+     * @return the report
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (SnowballType type : new SnowballType[]{SnowballType.SMALL, SnowballType.MID, SnowballType.BIG}) {
+            StringBuilder grid = new StringBuilder();
+            int dead = 0;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    if (blocked[row * cols + col]) {
+                        grid.append('B');
+                    } else if (isDeadCell(row, col, type)) {
+                        grid.append('#');
+                        dead++;
+                    } else {
+                        grid.append('.');
+                    }
+                }
+                grid.append('\n');
+            }
+            report.append(type).append(": ").append(dead).append(" dead cells\n").append(grid);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Adds a unit that may still move, with the cells where it could take each role.
+     */
+    private void addUnit(int cell, int size) {
+        int unit = newUnit(size);
+        int offset = cell * words;
+        int snowLeft = count(reach, offset, snow);
+        for (int role = TOP; role <= BOTTOM; role++) {
+            long[] mask = masks[role];
+            boolean possible = size <= role && canGrow(cell, role - size, snowLeft)
+                    && (role == BOTTOM || mobile[cell]);
+            for (int w = 0; w < words; w++) {
+                mask[unit * words + w] = possible ? reach[offset + w] : 0;
+            }
+        }
+        if (size == TOP) {
+            // A top that never moves can still complete a snowman formed right below it
+            long[] mask = masks[TOP];
+            for (int w = 0; w < words; w++) {
+                mask[unit * words + w] |= below[offset + w];
+            }
+        }
+    }
+
+    /**
+     * Adds a part of a frozen BIG_MID, which can only take its current role on its cell.
+     */
+    private void addFrozenPart(int cell, int role) {
+        int unit = newUnit(role);
+        for (int r = TOP; r <= BOTTOM; r++) {
+            Arrays.fill(masks[r], unit * words, unit * words + words, 0);
+        }
+        set(masks[role], unit * words, cell);
+    }
+
+    /// Reserves room for one more unit and returns its index
+    private int newUnit(int size) {
+        if (units == unitSizes.length) {
+            unitSizes = Arrays.copyOf(unitSizes, units * 2);
+            for (int role = TOP; role <= BOTTOM; role++) {
+                masks[role] = Arrays.copyOf(masks[role], units * 2 * words);
+            }
+        }
+        unitSizes[units] = size;
+        return units++;
+    }
+
+    /// True if a unit on the cell can grow the given number of times with the snow it can reach
+    private boolean canGrow(int cell, int growth, int snowLeft) {
+        return growth == 0 || (mobile[cell] && snowLeft >= growth);
+    }
+
+    /// True if a unit cannot take a role anywhere
+    private boolean empty(int role, int unit) {
+        long[] mask = masks[role];
+        for (int w = unit * words; w < unit * words + words; w++) {
+            if (mask[w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /// True if the three units can meet on a common cell in their roles
+    private boolean meet(int bottom, int middle, int top) {
+        long[] b = masks[BOTTOM];
+        long[] m = masks[MIDDLE];
+        long[] t = masks[TOP];
+        for (int w = 0; w < words; w++) {
+            if ((b[bottom * words + w] & m[middle * words + w] & t[top * words + w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /// Size of a single snowball: SMALL 0, MID 1, BIG 2
+    private static int size(SnowballType type) {
+        return switch (type) {
+            case SMALL -> TOP;
+            case MID -> MIDDLE;
+            default -> BOTTOM;
+        };
+    }
+
+    /// Number of cells set both in the bitset at offset and in other
+    private int count(long[] bits, int offset, long[] other) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(bits[offset + w] & other[w]);
+        }
+        return count;
+    }
+
+    private static void set(long[] bits, int offset, int cell) {
+        bits[offset + (cell >>> 6)] |= 1L << cell;
+    }
+
+    private static boolean get(long[] bits, int offset, int cell) {
+        return (bits[offset + (cell >>> 6)] & 1L << cell) != 0;
+    }
+}
@@ -1,12 +1,33 @@
 package pt.ipbeja.estig.po2.snowman.app.model;
 
 /**
+ * The four directions the monster can move in. Each direction carries the row and
+ * column offsets of one step, so movement code can work on plain int coordinates.
+ *
  * @author João Silva
  * @author Paulo Neves
  */
 public enum Direction {
-    UP,
-    DOWN,
-    LEFT,
-    RIGHT
+    UP(-1, 0),
+    DOWN(1, 0),
+    LEFT(0, -1),
+    RIGHT(0, 1);
+
+    private final int rowDelta;
+    private final int colDelta;
+
+    Direction(int rowDelta, int colDelta) {
+        this.rowDelta = rowDelta;
+        this.colDelta = colDelta;
+    }
+
+    /// Row offset of one step in this direction
+    public int getRowDelta() {
+        return rowDelta;
+    }
+
+    /// Column offset of one step in this direction
+    public int getColDelta() {
+        return colDelta;
+    }
 }
@@ -0,0 +1,258 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DistanceTable holds the shortest-path distances between the cells of a map, computed
+ * on its static terrain (BLOCK or passable) and shared by every analysis of that map.
+ * <p>
+ * Two kinds of distance are kept:
+ * - walk: the moves the monster needs to walk from one cell to another
+ * - push: the pushes a snowball needs to be moved from one cell to another, each push
+ * needing a passable cell behind the snowball for the monster
+ * Both ignore the snowballs, so they are lower bounds of the real distances in a state,
+ * which is what heuristics and deadlock checks need. Splitting a stack moves its top
+ * part like a push, so push distances also bound the moves of stacked snowballs.
+ * <p>
+ * The distances from a cell (one row of the table) are computed by breadth-first search
+ * the first time they are asked for. Small maps keep every row they computed; maps whose
+ * full table would exceed ROW_BUDGET distances keep only the rows most recently used, so
+ * memory stays bounded whatever the size of the map. Tables are cached by terrain layout,
+ * at most CACHE_CAPACITY of them, so every board, state and solver of a map in use shares
+ * one table. Tables can be read from several threads.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class DistanceTable {
+    /// Distance between cells that cannot be joined; above any distance, three of them add up without overflow
+    public static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+    /// Most distances kept per kind of distance in one table (4 bytes each)
+    public static final int ROW_BUDGET = 1 << 21;
+
+    /// Rows kept per kind of distance, even on maps larger than the budget
+    private static final int MIN_ROWS = 4;
+
+    /// Most tables cached
+    public static final int CACHE_CAPACITY = 8;
+
+    /// Tables most recently asked for, by layout key
+    private static final LinkedHashMap<String, DistanceTable> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DistanceTable> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    private final boolean[] blocked;
+    private final Rows walk;
+    private final Rows push;
+
+    private DistanceTable(SnowmanState map) {
+        this.rows = map.rows();
+        this.cols = map.cols();
+        this.cells = rows * cols;
+        this.blocked = new boolean[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            blocked[cell] = map.terrain(cell) == PositionContent.BLOCK;
+        }
+        this.walk = new Rows(false);
+        this.push = new Rows(true);
+    }
+
+    /**
+     * Returns the table of the map of a state, creating it on the first request.
+     *
+     * @param map a state of the map; only its BLOCK cells are used
+     * @return the shared table
+     */
+    public static DistanceTable of(SnowmanState map) {
+        String key = layoutKey(map);
+        synchronized (CACHE) {
+            DistanceTable table = CACHE.get(key);
+            if (table == null) {
+                table = new DistanceTable(map); // no distance is computed yet
+                CACHE.put(key, table);
+            }
+            return table;
+        }
+    }
+
+    /// Table of the map of a board
+    public static DistanceTable of(BoardModel board) {
+        return board.getDistances();
+    }
+
+    /// Number of tables cached
+    public static int cacheSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /// Key naming the size and BLOCK cells of a map
+    private static String layoutKey(SnowmanState map) {
+        StringBuilder key = new StringBuilder().append(map.rows()).append('x').append(map.cols()).append(':');
+        for (int cell = 0; cell < map.cells(); cell++) {
+            key.append(map.terrain(cell) == PositionContent.BLOCK ? '1' : '0');
+        }
+        return key.toString();
+    }
+
+    /**
+     * The rows of one kind of distance: all of them on small maps, the most recently used
+     * ones otherwise.
+     */
+    private final class Rows {
+        private final boolean pushes;
+        private final AtomicReferenceArray<int[]> all;
+        private final LinkedHashMap<Integer, int[]> recent;
+
+        Rows(boolean pushes) {
+            this.pushes = pushes;
+            if ((long) cells * cells <= ROW_BUDGET) {
+                this.all = new AtomicReferenceArray<>(cells);
+                this.recent = null;
+            } else {
+                int kept = Math.max(MIN_ROWS, ROW_BUDGET / cells);
+                this.all = null;
+                this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                        return size() > kept;
+                    }
+                };
+            }
+        }
+
+        /// Distances from a cell to every cell, computed on the first request
+        int[] from(int cell) {
+            if (all != null) {
+                int[] row = all.get(cell);
+                if (row == null) {
+                    row = fill(cell, pushes);
+                    all.set(cell, row);
+                }
+                return row;
+            }
+            synchronized (recent) {
+                int[] row = recent.get(cell);
+                if (row != null) {
+                    return row;
+                }
+            }
+            int[] row = fill(cell, pushes);
+            synchronized (recent) {
+                recent.put(cell, row);
+            }
+            return row;
+        }
+    }
+
+    /**
+     * Breadth-first search from a cell.
+     *
+     * @param pushes true to follow pushes, false to follow walks
+     * @return the distance to every cell, UNREACHABLE for the cells that cannot be reached
+     */
+    private int[] fill(int from, boolean pushes) {
+        int[] distances = new int[cells];
+        Arrays.fill(distances, UNREACHABLE);
+        if (blocked[from]) {
+            return distances;
+        }
+        int[] queue = new int[cells];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        distances[from] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / cols;
+            int col = cell % cols;
+            for (Direction direction : Direction.values()) {
+                int dr = direction.getRowDelta();
+                int dc = direction.getColDelta();
+                if (!passable(row + dr, col + dc) || pushes && !passable(row - dr, col - dc)) {
+                    continue;
+                }
+                int next = (row + dr) * cols + col + dc;
+                if (distances[next] == UNREACHABLE) {
+                    distances[next] = distances[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private boolean passable(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols && !blocked[row * cols + col];
+    }
+
+    /// Number of rows of the map
+    public int rows() {
+        return rows;
+    }
+
+    /// Number of columns of the map
+    public int cols() {
+        return cols;
+    }
+
+    /// True if the cell is a BLOCK
+    public boolean blocked(int cell) {
+        return blocked[cell];
+    }
+
+    /// Moves the monster needs to walk between two cells, or UNREACHABLE
+    public int walk(int from, int to) {
+        return walk.from(from)[to];
+    }
+
+    /// Pushes a snowball needs to go from one cell to another, or UNREACHABLE
+    public int push(int from, int to) {
+        return push.from(from)[to];
+    }
+
+    /// Pushes from a cell to every cell, UNREACHABLE where it cannot go; not to be modified
+    int[] pushesFrom(int from) {
+        return push.from(from);
+    }
+
+    /// Walking moves the monster needs to stand next to a cell, or UNREACHABLE
+    public int approach(int from, int cell) {
+        int[] walks = walk.from(from);
+        int row = cell / cols;
+        int col = cell % cols;
+        int best = UNREACHABLE;
+        for (Direction direction : Direction.values()) {
+            int r = row + direction.getRowDelta();
+            int c = col + direction.getColDelta();
+            if (passable(r, c)) {
+                best = Math.min(best, walks[r * cols + c]);
+            }
+        }
+        return best;
+    }
+
+    /// True if the table was computed for the given map: same size and BLOCK cells
+    public boolean matches(SnowmanState map) {
+        if (map.rows() != rows || map.cols() != cols) {
+            return false;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            if (blocked[cell] != (map.terrain(cell) == PositionContent.BLOCK)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
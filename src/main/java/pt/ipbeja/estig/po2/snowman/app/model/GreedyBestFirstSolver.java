@@ -0,0 +1,93 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import pt.ipbeja.estig.po2.snowman.app.model.interfaces.Heuristic;
+
+import java.util.List;
+
+/**
+ * GreedyBestFirstSolver always expands the stored state with the lowest heuristic
+ * estimate, ignoring the moves already made. It usually reaches a snowman after far
+ * fewer states than the optimal searches, but its solution can be longer than needed.
+ * <p>
+ * States are stored once, in a StateTable, and the open list is a LongHeap of packed
+ * (estimate, id) entries, ties broken towards the oldest state. States the heuristic
+ * reports as dead ends are never stored.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class GreedyBestFirstSolver extends Solver {
+    private final Heuristic heuristic;
+
+    /**
+     * Creates a greedy solver using the SnowmanHeuristic.
+     */
+    public GreedyBestFirstSolver() {
+        this(new SnowmanHeuristic());
+    }
+
+    /**
+     * @param heuristic the estimate of the remaining moves
+     */
+    public GreedyBestFirstSolver(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public Solution solve(SnowmanState start) {
+        long startNanos = System.nanoTime();
+        if (SnowmanRules.isSolved(start)) {
+            return solved(start, List.of(), 1, 0, startNanos);
+        }
+        int startEstimate = heuristic.estimate(start);
+        if (startEstimate == Heuristic.DEAD_END) {
+            return failed(Solution.Status.UNSOLVABLE, 1, 0, startNanos);
+        }
+
+        StateCodec codec = new StateCodec(start);
+        StateTable states = new StateTable(codec.words(), 1 << 14);
+        long[] key = new long[codec.words()];
+        codec.encode(start, key, 0);
+        states.add(key, 0, -1, -1);
+        LongHeap open = new LongHeap();
+        open.add((long) startEstimate << 32);
+
+        SnowmanState scratch = start.copy();
+        StateDelta journal = new StateDelta();
+        long expanded = 0;
+
+        while (!open.isEmpty()) {
+            if (limitReached(states.size(), expanded, startNanos)) {
+                return failed(Solution.Status.LIMIT_REACHED, states.size(), expanded, startNanos);
+            }
+            int id = (int) open.poll();
+            expanded++;
+
+            states.key(id, key, 0);
+            scratch.setJournal(null);
+            codec.decode(key, 0, scratch);
+            scratch.setJournal(journal);
+
+            for (Direction direction : DIRECTIONS) {
+                journal.clear();
+                int result = SnowmanRules.step(scratch, direction);
+                if (result == SnowmanRules.BLOCKED) {
+                    continue;
+                }
+                if ((result & SnowmanRules.COMPLETED) != 0) {
+                    return solved(start, path(states, id, direction), states.size(), expanded, startNanos);
+                }
+                int estimate = heuristic.estimate(scratch);
+                if (estimate != Heuristic.DEAD_END) {
+                    codec.encode(scratch, key, 0);
+                    int child = states.add(key, 0, id, direction.ordinal());
+                    if (child >= 0) {
+                        open.add((long) estimate << 32 | child);
+                    }
+                }
+                scratch.revert(journal);
+            }
+        }
+        return failed(Solution.Status.UNSOLVABLE, states.size(), expanded, startNanos);
+    }
+}
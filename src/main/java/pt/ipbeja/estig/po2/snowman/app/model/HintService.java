@@ -0,0 +1,123 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import pt.ipbeja.estig.po2.snowman.app.model.interfaces.Heuristic;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HintService answers "what is the best next move from here?" for the states of one map,
+ * within a time budget.
+ * <p>
+ * A hint is an anytime search: an AStarSolver runs until it finds an optimal solution or
+ * the budget runs out. In the first case every state along the solution is cached with
+ * its next move, so the following hints of a player who takes them are immediate. In the
+ * second case the best move known is returned: the first move of the solution the search
+ * had found, not proven the shortest, which is cached for this state only; or, without
+ * one, the move leading to the state with the lowest SnowmanHeuristic estimate. States
+ * proven unsolvable are cached too.
+ * <p>
+ * The cache is keyed by Zobrist state hash, so a service must only be used with the
+ * states of one map. Instances are not thread-safe.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class HintService {
+    /// Default time budget of a hint, in milliseconds
+    public static final long DEFAULT_BUDGET_MILLIS = 50;
+
+    /// Next move of the best solution known by state hash; null for solved states and states without a solution
+    private final Map<Long, Direction> cache = new HashMap<>();
+    private final SnowmanHeuristic heuristic = new SnowmanHeuristic();
+    private long hits;
+    private long misses;
+
+    /**
+     * Returns the best next move from a state, searching for at most the given time.
+     *
+     * @param state        the state to move from; it is not modified
+     * @param budgetMillis the time budget of the search, in milliseconds
+     * @return the move to press, or null if the state is solved or has no solution
+     */
+    public Direction hint(SnowmanState state, long budgetMillis) {
+        long startNanos = System.nanoTime();
+        Long key = state.hash();
+        if (cache.containsKey(key)) {
+            hits++;
+            return cache.get(key);
+        }
+        misses++;
+        if (SnowmanRules.isSolved(state)) {
+            return null;
+        }
+
+        // Everything since the request counts against the budget, including the setup of the search
+        AStarSolver solver = new AStarSolver();
+        solver.setTimeLimit(Math.max(1, budgetMillis - (System.nanoTime() - startNanos) / 1_000_000));
+        Solution solution = solver.solve(state);
+        switch (solution.getStatus()) {
+            case SOLVED -> {
+                SnowmanState replay = state.copy();
+                for (Direction direction : solution.getMoves()) {
+                    cache.put(replay.hash(), direction);
+                    SnowmanRules.step(replay, direction);
+                }
+                cache.put(replay.hash(), null);
+                return solution.getMoves().get(0);
+            }
+            case UNSOLVABLE -> {
+                cache.put(key, null);
+                return null;
+            }
+            default -> {
+                if (solution.hasMoves()) {
+                    Direction first = solution.getMoves().get(0);
+                    cache.put(key, first);
+                    return first;
+                }
+                return bestByEstimate(state);
+            }
+        }
+    }
+
+    /**
+     * The move leading to the state with the lowest estimate, a move completing the snowman
+     * first; null if every move is blocked.
+     */
+    private Direction bestByEstimate(SnowmanState state) {
+        Direction best = null;
+        int bestEstimate = Integer.MAX_VALUE;
+        for (Direction direction : Solver.DIRECTIONS) {
+            SnowmanState next = state.copy();
+            int result = SnowmanRules.step(next, direction);
+            if (result == SnowmanRules.BLOCKED) {
+                continue;
+            }
+            if ((result & SnowmanRules.COMPLETED) != 0) {
+                return direction;
+            }
+            int estimate = heuristic.estimate(next);
+            if (best == null || estimate < bestEstimate && estimate != Heuristic.DEAD_END) {
+                best = direction;
+                bestEstimate = estimate;
+            }
+        }
+        return best;
+    }
+
+    /// Number of states in the cache
+    public int size() {
+        return cache.size();
+    }
+
+    /// Hints answered from the cache
+    public long getHits() {
+        return hits;
+    }
+
+    /// Hints that needed a search
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,136 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * HistoryBuffer is a fixed-capacity ring buffer holding the moves that can be
+ * undone and redone on a BoardModel.
+ * <p>
+ * Entries are stored oldest first starting at index start and wrapping around the array.
+ * The cursor counts how many of the stored entries are currently applied: entries
+ * before the cursor can be undone, entries after it can be redone.
+ * <p>
+ * All operations are O(1): a push over a full buffer overwrites the oldest entry,
+ * and discarding the redoable entries only moves the end of the buffer back to the cursor.
+ * The entry a push overwrites is handed back to the caller so it can be reused.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+class HistoryBuffer {
+    private StateDelta[] entries;
+    private int start;
+    private int size;
+    private int cursor;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param capacity maximum number of entries kept (at least 1)
+     */
+    HistoryBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be at least 1: " + capacity);
+        }
+        this.entries = new StateDelta[capacity];
+    }
+
+    /// Maximum number of entries kept
+    int capacity() {
+        return entries.length;
+    }
+
+    /// Number of entries that can currently be undone
+    int position() {
+        return cursor;
+    }
+
+    /// Number of entries stored, counting the ones that can be redone
+    int size() {
+        return size;
+    }
+
+    boolean canUndo() {
+        return cursor > 0;
+    }
+
+    boolean canRedo() {
+        return cursor < size;
+    }
+
+    /**
+     * Appends an entry after the cursor. Redoable entries are discarded first and,
+     * if the buffer is full, the oldest entry is evicted.
+     *
+     * @param delta the changes made by the new move
+     * @return the evicted or discarded entry previously stored in the slot now used, or null
+     */
+    StateDelta push(StateDelta delta) {
+        // Discard the entries that could have been redone
+        size = cursor;
+
+        // Evict the oldest entry when full
+        if (size == entries.length) {
+            start = (start + 1) % entries.length;
+            size--;
+            cursor--;
+        }
+
+        int slot = (start + size) % entries.length;
+        StateDelta previous = entries[slot];
+        entries[slot] = delta;
+        size++;
+        cursor++;
+        return previous;
+    }
+
+    /**
+     * Moves the cursor one entry back.
+     *
+     * @return the entry that must be reverted
+     */
+    StateDelta undo() {
+        cursor--;
+        return entries[(start + cursor) % entries.length];
+    }
+
+    /**
+     * Moves the cursor one entry forward.
+     *
+     * @return the entry that must be replayed
+     */
+    StateDelta redo() {
+        StateDelta delta = entries[(start + cursor) % entries.length];
+        cursor++;
+        return delta;
+    }
+
+    /// Removes every entry
+    void clear() {
+        start = 0;
+        size = 0;
+        cursor = 0;
+    }
+
+    /**
+     * Changes the capacity, keeping the newest entries. When the buffer holds more
+     * entries than the new capacity, the oldest ones are dropped.
+     *
+     * @param capacity the new maximum number of entries (at least 1)
+     */
+    void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be at least 1: " + capacity);
+        }
+        int kept = Math.min(size, capacity);
+        int dropped = size - kept;
+
+        StateDelta[] resized = new StateDelta[capacity];
+        for (int i = 0; i < kept; i++) {
+            resized[i] = entries[(start + dropped + i) % entries.length];
+        }
+
+        entries = resized;
+        start = 0;
+        size = kept;
+        cursor = Math.max(0, cursor - dropped);
+    }
+}
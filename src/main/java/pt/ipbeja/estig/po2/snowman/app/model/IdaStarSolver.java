@@ -0,0 +1,209 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import pt.ipbeja.estig.po2.snowman.app.model.interfaces.Heuristic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * IdaStarSolver is an iterative-deepening A*: a series of depth-first searches, each one
+ * cut off where moves-so-far plus the heuristic estimate exceeds a threshold, the next
+ * threshold being the smallest value that was cut off. With an admissible Heuristic the
+ * first solution found is optimal, like the ones of BreadthFirstSolver and AStarSolver,
+ * but the search itself only keeps the current path, one StateDelta per depth to undo
+ * its moves, so its memory grows with the solution length instead of the state space.
+ * <p>
+ * A small, fixed-size TranspositionTable cuts off the states already reached during the
+ * current iteration with no more moves; it keeps entries of the current iteration in
+ * preference to older ones. With deadlock pruning enabled, states DeadlockAnalyzer
+ * proves unsolvable are not searched.
+ * <p>
+ * The threshold and the number of nodes expanded by each iteration of the last search
+ * are available through getIterations. The state limit applies to the nodes expanded,
+ * over all iterations.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class IdaStarSolver extends Solver {
+    /// Default memory budget of the transposition cache
+    public static final long DEFAULT_CACHE_BYTES = 1 << 20;
+
+    private final Heuristic heuristic;
+    private final long cacheBytes;
+    private final List<Iteration> iterations = new ArrayList<>();
+
+    // State of the running search
+    private SnowmanState state;
+    private DeadlockAnalyzer deadlocks;
+    private TranspositionTable cache;
+    private StateDelta[] journals;
+    private Direction[] path;
+    private int iteration;
+    private int nextThreshold;
+    private long nodes;
+    private long totalNodes;
+    private long searchStart;
+    private boolean stopped;
+
+    /**
+     * Creates an IDA* solver using the SnowmanHeuristic and a 1 MiB cache.
+     */
+    public IdaStarSolver() {
+        this(new SnowmanHeuristic(), DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param heuristic  the admissible estimate of the remaining moves
+     * @param cacheBytes memory budget of the transposition cache
+     */
+    public IdaStarSolver(Heuristic heuristic, long cacheBytes) {
+        this.heuristic = heuristic;
+        this.cacheBytes = cacheBytes;
+    }
+
+    /// Threshold and nodes expanded of every iteration of the last search, in order
+    public List<Iteration> getIterations() {
+        return List.copyOf(iterations);
+    }
+
+    @Override
+    public Solution solve(SnowmanState start) {
+        long startNanos = System.nanoTime();
+        iterations.clear();
+        if (SnowmanRules.isSolved(start)) {
+            return solved(start, List.of(), 1, 0, startNanos);
+        }
+        int threshold = heuristic.estimate(start);
+        if (threshold == Heuristic.DEAD_END) {
+            return failed(Solution.Status.UNSOLVABLE, 1, 0, startNanos);
+        }
+
+        state = start.copy();
+        deadlocks = pruneDeadlocks ? new DeadlockAnalyzer(start) : null;
+        cache = new TranspositionTable(cacheBytes, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        journals = new StateDelta[0];
+        path = new Direction[0];
+        totalNodes = 0;
+        searchStart = startNanos;
+        stopped = false;
+        try {
+            for (iteration = 0; ; iteration++) {
+                nextThreshold = Integer.MAX_VALUE;
+                nodes = 0;
+                visit(0);
+                int length = search(0, threshold);
+                iterations.add(new Iteration(threshold, nodes));
+                if (length > 0) {
+                    return solved(start, Arrays.asList(path).subList(0, length), cache.size(), totalNodes,
+                            startNanos);
+                }
+                if (stopped) {
+                    return failed(Solution.Status.LIMIT_REACHED, cache.size(), totalNodes, startNanos);
+                }
+                if (nextThreshold == Integer.MAX_VALUE) {
+                    return failed(Solution.Status.UNSOLVABLE, cache.size(), totalNodes, startNanos);
+                }
+                threshold = nextThreshold;
+            }
+        } finally {
+            state = null;
+            cache = null;
+        }
+    }
+
+    /**
+     * Searches depth-first below the current state, reached with g moves.
+     *
+     * @return the length of the solution found, or 0
+     */
+    private int search(int g, int threshold) {
+        if (limitReached(totalNodes, totalNodes, searchStart)) {
+            stopped = true;
+            return 0;
+        }
+        totalNodes++;
+        nodes++;
+        if (g == journals.length) {
+            journals = Arrays.copyOf(journals, g * 2 + 8);
+            path = Arrays.copyOf(path, journals.length);
+        }
+        if (journals[g] == null) {
+            journals[g] = new StateDelta();
+        }
+        StateDelta journal = journals[g];
+
+        for (Direction direction : DIRECTIONS) {
+            journal.clear();
+            state.setJournal(journal);
+            int result = SnowmanRules.step(state, direction);
+            state.setJournal(null);
+            if (result == SnowmanRules.BLOCKED) {
+                continue;
+            }
+            path[g] = direction;
+            if ((result & SnowmanRules.COMPLETED) != 0) {
+                return g + 1;
+            }
+
+            int estimate = heuristic.estimate(state);
+            if (estimate != Heuristic.DEAD_END && (deadlocks == null || !deadlocks.isDeadlocked(state))) {
+                int f = g + 1 + estimate;
+                if (f > threshold) {
+                    nextThreshold = Math.min(nextThreshold, f);
+                } else if (visit(g + 1)) {
+                    int length = search(g + 1, threshold);
+                    if (length > 0 || stopped) {
+                        return length;
+                    }
+                }
+            }
+            state.revert(journal);
+        }
+        return 0;
+    }
+
+    /**
+     * Records that the current state was reached with g moves in this iteration.
+     *
+     * @return false if it was already reached with no more moves, so it needs no search
+     */
+    private boolean visit(int g) {
+        // The value packs the iteration and the moves; the depth makes newer iterations win
+        int stored = cache.get(state.hash());
+        if (stored != TranspositionTable.NOT_FOUND && stored >>> 16 == iteration && (stored & 0xFFFF) <= g) {
+            return false;
+        }
+        cache.put(state.hash(), iteration << 16 | g, iteration);
+        return true;
+    }
+
+    /**
+     * Threshold and work of one depth-first iteration
+     */
+    public static final class Iteration {
+        private final int threshold;
+        private final long nodes;
+
+        Iteration(int threshold, long nodes) {
+            this.threshold = threshold;
+            this.nodes = nodes;
+        }
+
+        /// Largest moves-so-far plus estimate searched in this iteration
+        public int getThreshold() {
+            return threshold;
+        }
+
+        /// Number of states expanded in this iteration
+        public long getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public String toString() {
+            return "threshold " + threshold + ": " + nodes + " nodes";
+        }
+    }
+}
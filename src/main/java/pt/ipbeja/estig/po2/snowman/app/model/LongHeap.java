@@ -0,0 +1,71 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * LongHeap is a binary min-heap of primitive longs, used by the solvers as their open
+ * list. Entries pack the priority in the high bits and a state id in the low bits, so
+ * ordering the longs orders the states without any object per entry.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+final class LongHeap {
+    private long[] heap = new long[1024];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /// Adds an entry
+    void add(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    /// Smallest entry, without removing it
+    long peek() {
+        return heap[0];
+    }
+
+    /// Removes and returns the smallest entry
+    long poll() {
+        long result = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return result;
+    }
+}
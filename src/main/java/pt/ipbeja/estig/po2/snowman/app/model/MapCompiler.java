@@ -0,0 +1,166 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * MapCompiler converts text maps into a compact binary format that loads with a single
+ * read and no per-cell parsing, and reads that format back.
+ * <p>
+ * A compiled map (.smap) is laid out as:
+ * - header: magic "SMAP", version (short), name length (short), CRC32 and length of
+ * everything after the header (ints)
+ * - content hash of the text map (long), rows, cols, monster cell (-1 for none) and
+ * number of snowballs (ints)
+ * - the name in UTF-8, the snowball cells (ints) and the terrain packed 4 cells per byte,
+ * 2 bits per PositionContent ordinal, row-major
+ * All numbers are big-endian. The main method compiles every text map of a resources
+ * directory next to it (map1.txt → map1.smap); MapReader.loadLevel loads the compiled
+ * version of a map when it is shipped.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class MapCompiler {
+    /// File extension of compiled maps
+    public static final String EXTENSION = ".smap";
+
+    /// "SMAP"
+    private static final int MAGIC = 0x534D4150;
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private MapCompiler() {
+    }
+
+    /**
+     * Compiles a parsed map.
+     *
+     * @param map the map
+     * @return the bytes of the compiled map
+     */
+    public static byte[] compile(MapTemplate map) {
+        byte[] name = map.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("map name too long: " + name.length + " bytes");
+        }
+        int[] snowballs = map.snowballCells();
+        byte[] terrain = map.terrain();
+        int bodyBytes = 24 + name.length + 4 * snowballs.length + (terrain.length + 3) / 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyBytes);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) name.length).putInt(0).putInt(bodyBytes);
+        buffer.putLong(map.contentHash()).putInt(map.rows()).putInt(map.cols()).putInt(map.monsterCell())
+                .putInt(snowballs.length);
+        buffer.put(name);
+        for (int cell : snowballs) {
+            buffer.putInt(cell);
+        }
+        for (int cell = 0; cell < terrain.length; cell += 4) {
+            int packed = 0;
+            for (int i = 0; i < 4 && cell + i < terrain.length; i++) {
+                packed |= terrain[cell + i] << (2 * i);
+            }
+            buffer.put((byte) packed);
+        }
+        buffer.putInt(8, checksum(buffer.array()));
+        return buffer.array();
+    }
+
+    /**
+     * Reads a compiled map.
+     *
+     * @param buffer the whole compiled map, from its position to its limit
+     * @param source the name of the file, used in error messages
+     * @return the map
+     * @throws RuntimeException if the bytes are not a valid compiled map
+     */
+    public static MapTemplate decode(ByteBuffer buffer, String source) {
+        int start = buffer.position();
+        int length = buffer.remaining();
+        if (length < HEADER_BYTES + 24 || buffer.getInt(start) != MAGIC) {
+            throw new RuntimeException("Ficheiro de mapa vazio ou inválido: " + source);
+        }
+        if (buffer.getShort(start + 4) != VERSION) {
+            throw new RuntimeException("Versão de mapa compilado não suportada: " + source);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(start + HEADER_BYTES, length - HEADER_BYTES));
+        if (buffer.getInt(start + 12) != length - HEADER_BYTES || buffer.getInt(start + 8) != (int) crc.getValue()) {
+            throw new RuntimeException("Mapa compilado corrompido: " + source);
+        }
+
+        ByteBuffer body = buffer.slice(start + HEADER_BYTES, length - HEADER_BYTES);
+        long contentHash = body.getLong();
+        int rows = body.getInt();
+        int cols = body.getInt();
+        int monsterCell = body.getInt();
+        int snowballCount = body.getInt();
+        int nameLength = buffer.getShort(start + 6);
+        int cells = rows * cols;
+        if (rows < 1 || cols < 1 || nameLength < 0 || monsterCell < -1 || monsterCell >= cells
+                || snowballCount < 0 || body.remaining() != nameLength + 4L * snowballCount + (cells + 3) / 4) {
+            throw new RuntimeException("Mapa compilado corrompido: " + source);
+        }
+
+        byte[] name = new byte[nameLength];
+        body.get(name);
+        int[] snowballs = new int[snowballCount];
+        for (int i = 0; i < snowballCount; i++) {
+            snowballs[i] = body.getInt();
+            if (snowballs[i] < 0 || snowballs[i] >= cells) {
+                throw new RuntimeException("Mapa compilado corrompido: " + source);
+            }
+        }
+        byte[] terrain = new byte[cells];
+        for (int cell = 0; cell < cells; cell += 4) {
+            int packed = body.get();
+            for (int i = 0; i < 4 && cell + i < cells; i++) {
+                terrain[cell + i] = (byte) ((packed >>> (2 * i)) & 3);
+            }
+        }
+        return new MapTemplate(new String(name, StandardCharsets.UTF_8), rows, cols, terrain, monsterCell,
+                snowballs, contentHash);
+    }
+
+    /// CRC32 of everything after the header
+    private static int checksum(byte[] compiled) {
+        CRC32 crc = new CRC32();
+        crc.update(compiled, HEADER_BYTES, compiled.length - HEADER_BYTES);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Compiles every text map (*.txt) in a resources directory, writing each compiled map
+     * next to its text map.
+     *
+     * @param args the resources directory, src/main/resources by default
+     * @throws IOException if a map cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "src/main/resources");
+        List<Path> maps;
+        try (Stream<Path> files = Files.list(directory)) {
+            maps = files.filter(file -> file.getFileName().toString().endsWith(".txt")).sorted().toList();
+        }
+        for (Path map : maps) {
+            MapTemplate template;
+            try (InputStream in = Files.newInputStream(map)) {
+                template = MapTokenizer.tokenize(in, map.toString()).toTemplate();
+            }
+            String name = map.getFileName().toString();
+            Path file = directory.resolve(name.substring(0, name.length() - 4) + EXTENSION);
+            byte[] compiled = compile(template);
+            Files.write(file, compiled);
+            System.out.printf("%s: %s, %dx%d, %d -> %d bytes%n", file, template.getName(), template.rows(),
+                    template.cols(), Files.size(map), compiled.length);
+        }
+    }
+}
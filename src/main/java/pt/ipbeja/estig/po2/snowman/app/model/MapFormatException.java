@@ -0,0 +1,44 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * Thrown when a map file is not well formed, with the line and column (both starting at
+ * 1) where the problem was found.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class MapFormatException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String source;
+    private final int line;
+    private final int column;
+
+    /**
+     * @param source  the name of the map file
+     * @param line    the line of the problem
+     * @param column  the column of the problem
+     * @param problem what is wrong
+     */
+    public MapFormatException(String source, int line, int column, String problem) {
+        super("Mapa inválido " + source + ", linha " + line + ", coluna " + column + ": " + problem);
+        this.source = source;
+        this.line = line;
+        this.column = column;
+    }
+
+    /// Name of the map file
+    public String getSource() {
+        return source;
+    }
+
+    /// Line of the problem, starting at 1
+    public int getLine() {
+        return line;
+    }
+
+    /// Column of the problem, starting at 1
+    public int getColumn() {
+        return column;
+    }
+}
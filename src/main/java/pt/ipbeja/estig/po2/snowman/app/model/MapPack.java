@@ -0,0 +1,292 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * MapPack is a single file holding many compiled maps, so a catalogue of levels does not
+ * need one resource per level.
+ * <p>
+ * The maps are stored one after the other in the MapCompiler format, followed by an index
+ * and a fixed-size trailer:
+ * - index: for every map, its name (short length + UTF-8), offset (long) and length (int)
+ * - trailer: offset of the index (long), number of maps (int) and the magic "SPAK"
+ * Packs are written by a Writer, one map at a time, and opened with FileChannel.map: only
+ * the trailer and the index are read when a pack is opened, and a map is decoded from its
+ * slice of the file when asked for, by name or by ordinal, without touching the others.
+ * Iterating a pack decodes its maps one at a time, for tools that walk every level.
+ * <p>
+ * An open pack is immutable and can be read from several threads.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class MapPack implements Iterable<MapTemplate> {
+    /// File extension of map packs
+    public static final String EXTENSION = ".spak";
+
+    /// "SPAK"
+    private static final int MAGIC = 0x5350414B;
+    private static final int TRAILER_BYTES = 16;
+
+    private final ByteBuffer data;
+    private final String[] names;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final Map<String, Integer> ordinals;
+
+    private MapPack(ByteBuffer data, String[] names, int[] offsets, int[] lengths) {
+        this.data = data;
+        this.names = names;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.ordinals = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ordinals.put(names[i], i);
+        }
+    }
+
+    /**
+     * Opens a pack, memory-mapping the file and reading its index.
+     *
+     * @param file the pack written by a Writer
+     * @return the pack
+     * @throws IOException if the file cannot be read or is not a pack
+     */
+    public static MapPack open(Path file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("map pack too large: " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int size = data.capacity();
+        if (size < TRAILER_BYTES || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("not a map pack: " + file);
+        }
+        long indexOffset = data.getLong(size - TRAILER_BYTES);
+        int count = data.getInt(size - 8);
+        if (indexOffset < 0 || indexOffset > size - TRAILER_BYTES || count < 0) {
+            throw new IOException("corrupted map pack: " + file);
+        }
+
+        ByteBuffer index = data.slice((int) indexOffset, size - TRAILER_BYTES - (int) indexOffset);
+        String[] names = new String[count];
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[index.getShort()];
+                index.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                long offset = index.getLong();
+                lengths[i] = index.getInt();
+                if (offset < 0 || lengths[i] < 0 || offset + lengths[i] > indexOffset) {
+                    throw new IOException("corrupted map pack: " + file);
+                }
+                offsets[i] = (int) offset;
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("corrupted map pack: " + file, e);
+        }
+        return new MapPack(data, names, offsets, lengths);
+    }
+
+    /// Number of maps in the pack
+    public int size() {
+        return names.length;
+    }
+
+    /// Name of the map with the given ordinal
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    /// Names of the maps, in pack order
+    public List<String> names() {
+        return List.of(names);
+    }
+
+    /// Ordinal of the map with the given name, or -1 if the pack has none
+    public int ordinal(String name) {
+        Integer ordinal = ordinals.get(name);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Decodes the map with the given ordinal.
+     *
+     * @param ordinal the position of the map in the pack, from 0
+     * @return the map
+     * @throws IndexOutOfBoundsException if there is no such map
+     */
+    public MapTemplate get(int ordinal) {
+        Objects.checkIndex(ordinal, names.length);
+        return MapCompiler.decode(data.slice(offsets[ordinal], lengths[ordinal]), names[ordinal]);
+    }
+
+    /**
+     * Decodes the map with the given name.
+     *
+     * @param name the name the map was added with
+     * @return the map, or null if the pack has none with that name
+     */
+    public MapTemplate get(String name) {
+        int ordinal = ordinal(name);
+        return ordinal < 0 ? null : get(ordinal);
+    }
+
+    /**
+     * @return an iterator decoding the maps in pack order, one at a time
+     */
+    @Override
+    public Iterator<MapTemplate> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < names.length;
+            }
+
+            @Override
+            public MapTemplate next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Creates a pack file, replacing it if it exists.
+     *
+     * @param file the destination
+     * @return a writer the maps are added to; closing it writes the index
+     * @throws IOException if the file cannot be created
+     */
+    public static Writer create(Path file) throws IOException {
+        return new Writer(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Writes the maps of a pack one at a time, keeping only the index in memory.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final List<String> names = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+        private long[] offsets = new long[16];
+        private int[] lengths = new int[16];
+        private long position;
+        private long indexBytes;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Appends a map to the pack.
+         *
+         * @param name the name the map is looked up by, unique in the pack
+         * @param map  the map
+         * @throws IOException if the map cannot be written, or the pack would grow past the
+         *                     2 GiB open can map
+         */
+        public void add(String name, MapTemplate map) throws IOException {
+            int nameBytes = name.getBytes(StandardCharsets.UTF_8).length;
+            if (nameBytes > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("map name too long: " + name);
+            }
+            if (seen.contains(name)) {
+                throw new IllegalArgumentException("duplicate map name in pack: " + name);
+            }
+            byte[] compiled = MapCompiler.compile(map);
+            long entryBytes = 14 + nameBytes;
+            if (position + compiled.length + indexBytes + entryBytes + TRAILER_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("map pack too large to add: " + name);
+            }
+            write(ByteBuffer.wrap(compiled));
+            seen.add(name);
+            int count = names.size();
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            names.add(name);
+            offsets[count] = position;
+            lengths[count] = compiled.length;
+            position += compiled.length;
+            indexBytes += entryBytes;
+        }
+
+        /// Number of maps added so far
+        public int size() {
+            return names.size();
+        }
+
+        /**
+         * Writes the index and the trailer and closes the file.
+         */
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                long indexOffset = position;
+                for (int i = 0; i < names.size(); i++) {
+                    byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                    write(ByteBuffer.allocate(14 + name.length).putShort((short) name.length).put(name)
+                            .putLong(offsets[i]).putInt(lengths[i]).flip());
+                }
+                write(ByteBuffer.allocate(TRAILER_BYTES).putLong(indexOffset).putInt(names.size()).putInt(MAGIC)
+                        .flip());
+            }
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Packs every text map (*.txt) of a directory, named after their files without the
+     * extension (map1.txt → "map1").
+     *
+     * @param args the directory of the maps (src/main/resources by default) and the pack
+     *             file (maps.spak in that directory by default)
+     * @throws IOException if a map cannot be read or the pack cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "src/main/resources");
+        Path pack = args.length > 1 ? Path.of(args[1]) : directory.resolve("maps" + EXTENSION);
+        List<Path> maps;
+        try (Stream<Path> files = Files.list(directory)) {
+            maps = files.filter(file -> file.getFileName().toString().endsWith(".txt")).sorted().toList();
+        }
+        try (Writer writer = create(pack)) {
+            for (Path map : maps) {
+                try (InputStream in = Files.newInputStream(map)) {
+                    String name = map.getFileName().toString();
+                    MapTemplate template = MapTokenizer.tokenize(in, map.toString()).toTemplate();
+                    writer.add(name.substring(0, name.length() - 4), template);
+                }
+            }
+        }
+        System.out.printf("%s: %d maps, %d bytes%n", pack, maps.size(), Files.size(pack));
+    }
+}
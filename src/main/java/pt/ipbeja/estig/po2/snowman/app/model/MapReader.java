@@ -1,8 +1,10 @@
 package pt.ipbeja.estig.po2.snowman.app.model;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * MapReader is responsible for loading game maps from resource files
@@ -17,6 +19,16 @@ public class MapReader {
 
     String mapName;
 
+    /**
+     * Time the solvability check of a loaded map may take, 0 when validation is off
+     */
+    private long validationTimeoutMillis;
+
+    /**
+     * Verdict of the last map parsed, null when validation is off
+     */
+    private Future<MapValidation> validation;
+
     /**
      * Reads a map file from the resources folder and returns a BoardModel.
      * The first line in the file is treated as the map name. Subsequent lines
@@ -32,41 +44,144 @@ public class MapReader {
         if (stream == null) {
             throw new RuntimeException("Mapa não encontrado: " + resourcePath);
         }
+        if (resourcePath.endsWith(MapCompiler.EXTENSION)) {
+            return loadCompiledMap(stream, resourcePath);
+        }
+        return loadMap(stream, resourcePath);
+    }
 
-        String mapName = "";
-        List<String[]> lines = new ArrayList<>();
+    /**
+     * Loads a level, preferring its compiled version: for "/map1.txt" the resource
+     * "/map1.smap" is read instead when it exists, and the text map otherwise.
+     *
+     * @param resourcePath the path to the text map inside resources (e.g., "/map1.txt")
+     * @return a BoardModel with the level's terrain, snowballs and monster
+     * @throws RuntimeException if neither map is found, or the one found is invalid
+     */
+    public BoardModel loadLevel(String resourcePath) {
+        return loaded(loadTemplate(resourcePath));
+    }
 
-        // Read the file line by line
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
-            String line;
+    /**
+     * Loads a level through a template cache: the map is read (preferring its compiled
+     * version, like loadLevel) only the first time, or after it was evicted, and every
+     * call returns a fresh BoardModel.
+     *
+     * @param cache        the cache of parsed maps
+     * @param resourcePath the path to the text map inside resources (e.g., "/map1.txt")
+     * @return a new BoardModel with the level's terrain, snowballs and monster
+     * @throws RuntimeException if the map is not found or is invalid
+     */
+    public BoardModel loadLevel(MapTemplateCache cache, String resourcePath) {
+        return loaded(cache.get(resourcePath));
+    }
 
-            // Read the map name from the first line
-            mapName = reader.readLine();
-            if (mapName == null) {
-                throw new RuntimeException("Ficheiro de mapa vazio ou inválido: " + resourcePath);
+    /**
+     * Reads a level without making a board, preferring its compiled version like
+     * loadLevel. The map name is not stored and the map is not validated.
+     *
+     * @param resourcePath the path to the text map inside resources (e.g., "/map1.txt")
+     * @return the parsed map
+     * @throws RuntimeException if neither map is found, or the one found is invalid
+     */
+    public MapTemplate loadTemplate(String resourcePath) {
+        int dot = resourcePath.lastIndexOf('.');
+        if (dot > resourcePath.lastIndexOf('/')) {
+            String compiled = resourcePath.substring(0, dot) + MapCompiler.EXTENSION;
+            InputStream stream = getClass().getResourceAsStream(compiled);
+            if (stream != null) {
+                return readCompiledMap(stream, compiled);
             }
+        }
+        InputStream stream = getClass().getResourceAsStream(resourcePath);
+        if (stream == null) {
+            throw new RuntimeException("Mapa não encontrado: " + resourcePath);
+        }
+        return resourcePath.endsWith(MapCompiler.EXTENSION)
+                ? readCompiledMap(stream, resourcePath) : readMap(stream, resourcePath);
+    }
 
-            // Read the map layout starting from the second line
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    // Split symbols by whitespace and store each row as a String array
-                    lines.add(line.trim().split("\\s+"));
-                }
-            }
+    /**
+     * Reads a map from a stream, in the format of the map files, and closes the stream.
+     * The bytes are scanned once by a MapTokenizer, without splitting lines into strings.
+     *
+     * @param stream the map file
+     * @param source the name of the file, used in error messages
+     * @return a BoardModel with the map's terrain, snowballs and monster
+     * @throws MapFormatException if the file is empty or its rows differ in length, with
+     *                            the line and column of the problem
+     * @throws RuntimeException   if the stream cannot be read
+     */
+    public BoardModel loadMap(InputStream stream, String source) {
+        return loaded(readMap(stream, source));
+    }
+
+    /// Tokenizes a text map and closes the stream
+    private MapTemplate readMap(InputStream stream, String source) {
+        try (stream) {
+            return MapTokenizer.tokenize(stream, source).toTemplate();
         } catch (IOException e) {
             throw new RuntimeException("Erro ao ler o mapa: " + e.getMessage());
         }
+    }
 
-        // Convert the list of String arrays into a 2D String array and parse
-        String[][] map = lines.toArray(new String[0][]);
-        return parseMap(map, mapName);
+    /**
+     * Loads a level from a map pack by name.
+     *
+     * @param pack the open pack
+     * @param name the name the level was packed with
+     * @return a BoardModel with the level's terrain, snowballs and monster
+     * @throws RuntimeException if the pack has no such level
+     */
+    public BoardModel loadMapFromPack(MapPack pack, String name) {
+        MapTemplate map = pack.get(name);
+        if (map == null) {
+            throw new RuntimeException("Mapa não encontrado: " + name);
+        }
+        return loaded(map);
+    }
+
+    /**
+     * Loads a level from a map pack by its position in the pack.
+     *
+     * @param pack    the open pack
+     * @param ordinal the position of the level, from 0
+     * @return a BoardModel with the level's terrain, snowballs and monster
+     * @throws IndexOutOfBoundsException if the pack has no such level
+     */
+    public BoardModel loadMapFromPack(MapPack pack, int ordinal) {
+        return loaded(pack.get(ordinal));
+    }
+
+    /**
+     * Reads a map compiled by MapCompiler from a stream, with a single read into a
+     * buffer, and closes the stream.
+     *
+     * @param stream the compiled map
+     * @param source the name of the file, used in error messages
+     * @return a BoardModel with the map's terrain, snowballs and monster
+     * @throws RuntimeException if the stream cannot be read or is not a valid compiled map
+     */
+    public BoardModel loadCompiledMap(InputStream stream, String source) {
+        return loaded(readCompiledMap(stream, source));
+    }
+
+    /// Decodes a compiled map, read with a single read, and closes the stream
+    private MapTemplate readCompiledMap(InputStream stream, String source) {
+        byte[] bytes;
+        try (stream) {
+            bytes = stream.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler o mapa: " + e.getMessage());
+        }
+        return MapCompiler.decode(ByteBuffer.wrap(bytes), source);
     }
 
     /**
      * Parses a 2D array of symbol strings into a BoardModel. Each symbol
      * indicates the content type of a cell, such as SNOW, BLOCK, MONSTER, or SMALL_SNOWBALL.
-     * After constructing the board content, it initializes the BoardModel, saves its initial state,
-     * and sets the map name.
+     * After constructing the board content, it initializes the BoardModel (which takes the
+     * loaded layout as the initial state for undo/redo) and sets the map name.
      *
      * @param map     a 2D array of symbol strings representing the map layout
      * @param mapName the name of the map (typically read from the first line of the file)
@@ -103,13 +218,51 @@ public class MapReader {
             boardContent.add(line);
         }
 
-        // Instantiate the BoardModel, save its initial state, and set map name
+        // Instantiate the BoardModel and set map name
         BoardModel boardModel = new BoardModel(boardContent, monster, snowballs);
-        boardModel.saveState();  // Save the initial snapshot for undo/redo
+        return loaded(boardModel, mapName, MapValidator.contentHash(map));
+    }
+
+    /// Makes the board of a map just read
+    private BoardModel loaded(MapTemplate map) {
+        return loaded(map.toBoardModel(), map.getName(), map.contentHash());
+    }
+
+    /// Stores the name of a map just read and starts its solvability check, if turned on
+    private BoardModel loaded(BoardModel boardModel, String mapName, long contentHash) {
         setMapName(mapName);    // Store the map name for reference
+
+        // Check in the background that the snowman can be built
+        if (validationTimeoutMillis > 0) {
+            validation = MapValidator.validate(contentHash, boardModel, validationTimeoutMillis);
+        }
         return boardModel;
     }
 
+    /**
+     * Turns on the solvability check of the maps loaded from now on. The check runs in
+     * the background and its verdict is available through getValidation.
+     *
+     * @param timeoutMillis time the search may take, in milliseconds; 0 turns the check off
+     */
+    public void setValidation(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("timeout must not be negative: " + timeoutMillis);
+        }
+        this.validationTimeoutMillis = timeoutMillis;
+        if (timeoutMillis == 0) {
+            validation = null;
+        }
+    }
+
+    /**
+     * @return the pending or finished verdict on the last map loaded, or null when
+     * validation is off
+     */
+    public Future<MapValidation> getValidation() {
+        return validation;
+    }
+
     public String getMapName() {
         return mapName;
     }
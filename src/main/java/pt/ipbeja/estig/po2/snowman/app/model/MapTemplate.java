@@ -0,0 +1,121 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * MapTemplate is an immutable, parsed map: its name, its terrain packed as one
+ * PositionContent ordinal per row-major cell, the cell of the monster and the cells of
+ * the small snowballs. It is what MapTokenizer reads from a text map and MapCompiler
+ * reads from a compiled one, and any number of fresh BoardModels can be made from it
+ * without going back to the file, or reset to it with BoardModel.resetFrom.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class MapTemplate {
+    private static final PositionContent[] CONTENTS = PositionContent.values();
+
+    private final String name;
+    private final int rows;
+    private final int cols;
+    private final byte[] terrain;
+    private final int monsterCell;
+    private final int[] snowballCells;
+    private final long contentHash;
+
+    /**
+     * Creates a template that takes ownership of the given arrays.
+     *
+     * @param name          the name of the map
+     * @param rows          the number of rows
+     * @param cols          the number of columns
+     * @param terrain       the PositionContent ordinal of every cell, row-major
+     * @param monsterCell   the cell of the monster, -1 if there is none
+     * @param snowballCells the cells of the small snowballs
+     * @param contentHash   the hash of the map's symbols, see MapValidator.contentHash
+     */
+    MapTemplate(String name, int rows, int cols, byte[] terrain, int monsterCell, int[] snowballCells,
+                long contentHash) {
+        this.name = name;
+        this.rows = rows;
+        this.cols = cols;
+        this.terrain = terrain;
+        this.monsterCell = monsterCell;
+        this.snowballCells = snowballCells;
+        this.contentHash = contentHash;
+    }
+
+    /// Name of the map
+    public String getName() {
+        return name;
+    }
+
+    /// Number of rows of the map
+    public int rows() {
+        return rows;
+    }
+
+    /// Number of columns of the map
+    public int cols() {
+        return cols;
+    }
+
+    /// Content of a cell; the monster and snowball cells have no snow
+    public PositionContent terrain(int row, int col) {
+        return CONTENTS[terrain[row * cols + col]];
+    }
+
+    /// Row-major cell of the monster, or -1 if the map has none
+    public int monsterCell() {
+        return monsterCell;
+    }
+
+    /// Row-major cells of the small snowballs
+    public int[] snowballCells() {
+        return snowballCells.clone();
+    }
+
+    /// Number of small snowballs
+    int snowballCount() {
+        return snowballCells.length;
+    }
+
+    /// Cell of the small snowball with the given index
+    int snowballCell(int index) {
+        return snowballCells[index];
+    }
+
+    /// Hash of the symbols of the map, see MapValidator.contentHash
+    public long contentHash() {
+        return contentHash;
+    }
+
+    /// PositionContent ordinals of every cell, row-major; not to be modified
+    byte[] terrain() {
+        return terrain;
+    }
+
+    /**
+     * @return a new BoardModel with the map's terrain, monster and snowballs
+     */
+    public BoardModel toBoardModel() {
+        return new BoardModel(this);
+    }
+
+    /**
+     * Two templates are equal when they have the same name, layout, monster and snowballs.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MapTemplate other)) return false;
+        return rows == other.rows && cols == other.cols && monsterCell == other.monsterCell
+                && contentHash == other.contentHash && name.equals(other.name)
+                && Arrays.equals(terrain, other.terrain) && Arrays.equals(snowballCells, other.snowballCells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(contentHash) * 31 + name.hashCode();
+    }
+}
@@ -0,0 +1,131 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * MapTemplateCache keeps the parsed maps (MapTemplates) most recently asked for, keyed by
+ * resource path, so restarting or switching back to a level stamps a fresh BoardModel
+ * from memory instead of reading and parsing the map again.
+ * <p>
+ * The cache holds at most capacity maps and evicts the least recently used one. It counts
+ * hits, misses and evictions. Templates are immutable, so one cached map can be shared by
+ * any number of boards. All methods are thread-safe; a map missing from the cache is read
+ * outside the lock, so two threads missing the same map at once may both read it.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class MapTemplateCache {
+    /// Maps kept by default
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final int capacity;
+    private final Function<String, MapTemplate> loader;
+    private final LinkedHashMap<String, MapTemplate> templates;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /// Cache of DEFAULT_CAPACITY maps read with MapReader.loadTemplate
+    public MapTemplateCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /// Cache of up to capacity maps read with MapReader.loadTemplate
+    public MapTemplateCache(int capacity) {
+        this(capacity, path -> new MapReader().loadTemplate(path));
+    }
+
+    /**
+     * @param capacity the most maps kept (at least 1)
+     * @param loader   reads the map of a resource path on a miss
+     */
+    public MapTemplateCache(int capacity, Function<String, MapTemplate> loader) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.loader = loader;
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MapTemplate> eldest) {
+                if (size() > MapTemplateCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the map of a resource path, reading it on a miss.
+     *
+     * @param resourcePath the path of the map inside resources (e.g. "/map1.txt")
+     * @return the parsed map
+     * @throws RuntimeException if the map cannot be read
+     */
+    public MapTemplate get(String resourcePath) {
+        synchronized (this) {
+            MapTemplate template = templates.get(resourcePath);
+            if (template != null) {
+                hits++;
+                return template;
+            }
+            misses++;
+        }
+        MapTemplate template = loader.apply(resourcePath);
+        synchronized (this) {
+            templates.put(resourcePath, template);
+        }
+        return template;
+    }
+
+    /// Fresh BoardModel of the map of a resource path
+    public BoardModel newBoard(String resourcePath) {
+        return get(resourcePath).toBoardModel();
+    }
+
+    /// True if the map of the resource path is cached; does not count as a use
+    public synchronized boolean contains(String resourcePath) {
+        return templates.containsKey(resourcePath);
+    }
+
+    /// Removes every map, keeping the statistics
+    public synchronized void clear() {
+        templates.clear();
+    }
+
+    /// Number of maps cached
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    /// Most maps kept
+    public int capacity() {
+        return capacity;
+    }
+
+    /// Lookups answered from the cache
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /// Lookups that had to read the map
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /// Maps dropped to make room for others
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MapTemplateCache " + templates.size() + "/" + capacity + " - " + hits + " hits - " + misses
+                + " misses - " + evictions + " evictions";
+    }
+}
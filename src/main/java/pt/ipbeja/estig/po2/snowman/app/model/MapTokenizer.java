@@ -0,0 +1,285 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MapTokenizer reads a map file in a single pass over its bytes, straight into packed
+ * cell arrays: no lines, split strings or symbol arrays are created on the way.
+ * <p>
+ * The format is the one MapReader always read: the first line is the map name, every
+ * other non-blank line is a row of symbols separated by whitespace (S snow, B block,
+ * M monster, SB small snowball; anything else is a cell without snow). Lines may end
+ * with \n, \r\n or \r. Every row must have as many symbols as the first one, otherwise
+ * a MapFormatException reports the line and column of the problem.
+ * <p>
+ * While scanning, the tokenizer also computes the same content hash as
+ * MapValidator.contentHash (for maps written in ASCII), so the solvability check can be
+ * cached without the symbol array.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class MapTokenizer {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte NO_SNOW = (byte) PositionContent.NO_SNOW.ordinal();
+    private static final byte SNOW = (byte) PositionContent.SNOW.ordinal();
+    private static final byte BLOCK = (byte) PositionContent.BLOCK.ordinal();
+    private static final PositionContent[] CONTENTS = PositionContent.values();
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final InputStream in;
+    private final String source;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    /// Line and column of the last character read
+    private int line = 1;
+    private int column;
+
+    private String name;
+    private int rows;
+    private int cols;
+    private byte[] terrain = new byte[256];
+    private int cells;
+    private int monsterCell = -1;
+    private int[] snowballCells = new int[16];
+    private int snowballs;
+    private long contentHash = 0xCBF29CE484222325L;
+
+    private MapTokenizer(InputStream in, String source) {
+        this.in = in;
+        this.source = source;
+    }
+
+    /**
+     * Reads a whole map from a stream, which is not closed.
+     *
+     * @param in     the map file
+     * @param source the name of the file, used in error messages
+     * @return the tokenizer holding the map
+     * @throws IOException         if the stream cannot be read
+     * @throws MapFormatException if the file is empty, has no cells or its rows differ in length
+     */
+    public static MapTokenizer tokenize(InputStream in, String source) throws IOException {
+        MapTokenizer tokenizer = new MapTokenizer(in, source);
+        boolean lineFeedPending = tokenizer.readName();
+        tokenizer.readCells(lineFeedPending);
+        return tokenizer;
+    }
+
+    /// Next byte of the stream, or -1 at its end
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = Math.max(in.read(buffer, 0, BUFFER_SIZE), 0);
+            position = 0;
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Reads the first line as the map name.
+     *
+     * @return true if the line ended with \r, so a \n that follows belongs to it
+     */
+    private boolean readName() throws IOException {
+        byte[] bytes = new byte[64];
+        int length = 0;
+        int b = read();
+        if (b < 0) {
+            throw new MapFormatException(source, 1, 1, "ficheiro vazio");
+        }
+        while (b >= 0 && b != '\n' && b != '\r') {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+            b = read();
+        }
+        name = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        line = 2;
+        return b == '\r';
+    }
+
+    /// Reads the rows of symbols up to the end of the stream
+    private void readCells(boolean lineFeedPending) throws IOException {
+        int symbols = 0;
+        while (true) {
+            int b = read();
+            if (lineFeedPending) {
+                lineFeedPending = false;
+                if (b == '\n') {
+                    continue;
+                }
+            }
+            if (b > ' ') {
+                b = readSymbol(b, symbols++);
+            }
+            if (b < 0 || b == '\n' || b == '\r') {
+                endRow(symbols);
+                if (b < 0) {
+                    break;
+                }
+                lineFeedPending = b == '\r';
+                line++;
+                column = 0;
+                symbols = 0;
+            } else {
+                column++;
+            }
+        }
+        if (rows == 0) {
+            throw new MapFormatException(source, line, 1, "o mapa não tem células");
+        }
+    }
+
+    /**
+     * Reads one symbol and stores its cell.
+     *
+     * @param first the first byte of the symbol
+     * @param index the position of the symbol in its row
+     * @return the byte that ended the symbol, or -1 at the end of the stream
+     */
+    private int readSymbol(int first, int index) throws IOException {
+        int symbolColumn = ++column;
+        if (rows > 0 && index == cols) {
+            throw new MapFormatException(source, line, symbolColumn, "esperados " + cols + " símbolos por linha");
+        }
+        int second = -1;
+        int length = 1;
+        long hash = (contentHash ^ first) * FNV_PRIME;
+        int b;
+        while ((b = read()) > ' ') {
+            if ((b & 0xC0) != 0x80) {
+                column++; // not a UTF-8 continuation byte
+            }
+            if (length == 1) {
+                second = b;
+            }
+            length++;
+            hash = (hash ^ b) * FNV_PRIME;
+        }
+        contentHash = (hash ^ ' ') * FNV_PRIME;
+
+        byte content = NO_SNOW;
+        if (length == 1 && first == 'S') {
+            content = SNOW;
+        } else if (length == 1 && first == 'B') {
+            content = BLOCK;
+        } else if (length == 1 && first == 'M') {
+            monsterCell = cells;
+        } else if (length == 2 && first == 'S' && second == 'B') {
+            if (snowballs == snowballCells.length) {
+                snowballCells = Arrays.copyOf(snowballCells, snowballs * 2);
+            }
+            snowballCells[snowballs++] = cells;
+        }
+        if (cells == terrain.length) {
+            terrain = Arrays.copyOf(terrain, cells * 2);
+        }
+        terrain[cells++] = content;
+        return b;
+    }
+
+    /// Closes a line holding the given number of symbols; blank lines are skipped
+    private void endRow(int symbols) {
+        if (symbols == 0) {
+            return;
+        }
+        if (rows == 0) {
+            cols = symbols;
+        } else if (symbols < cols) {
+            throw new MapFormatException(source, line, column + 1,
+                    "esperados " + cols + " símbolos, encontrados " + symbols);
+        }
+        rows++;
+        contentHash = (contentHash ^ '\n') * FNV_PRIME;
+    }
+
+    /// Name of the map, from its first line
+    public String getName() {
+        return name;
+    }
+
+    /// Number of rows of the map
+    public int rows() {
+        return rows;
+    }
+
+    /// Number of columns of the map
+    public int cols() {
+        return cols;
+    }
+
+    /// Content of a cell; the monster and snowball cells have no snow
+    public PositionContent terrain(int row, int col) {
+        return CONTENTS[terrain[row * cols + col]];
+    }
+
+    /// Row-major cell of the monster, or -1 if the map has none; the last M wins
+    public int monsterCell() {
+        return monsterCell;
+    }
+
+    /// Row-major cells of the small snowballs, in file order
+    public int[] snowballCells() {
+        return Arrays.copyOf(snowballCells, snowballs);
+    }
+
+    /// Hash of the symbols of the map, see MapValidator.contentHash
+    public long contentHash() {
+        return contentHash;
+    }
+
+    /// Immutable template of the map read
+    public MapTemplate toTemplate() {
+        return new MapTemplate(name, rows, cols, Arrays.copyOf(terrain, cells), monsterCell, snowballCells(),
+                contentHash);
+    }
+
+    /// New BoardModel with the map's terrain, monster and snowballs
+    public BoardModel toBoardModel() {
+        return toTemplate().toBoardModel();
+    }
+
+    /**
+     * Measures how fast a large random map is read: it is generated once, then tokenized
+     * a few times to warm up and a few more times against the clock.
+     *
+     * @param args the size of the square map (500 by default) and the number of timed
+     *             reads (5 by default)
+     * @throws IOException never, the map is read from memory
+     */
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String[] symbols = {"S", "B", "X", "SB"};
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder("Large\n");
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                text.append(row == 0 && col == 0 ? "M" : symbols[random.nextInt(symbols.length)]).append(' ');
+            }
+            text.append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < repetitions; i++) {
+            tokenize(new ByteArrayInputStream(bytes), "large.txt");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            tokenize(new ByteArrayInputStream(bytes), "large.txt");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Tokenized %d x %.2f MB at %.0f MB/s%n", repetitions, bytes.length / 1e6,
+                repetitions * bytes.length / 1e6 / seconds);
+    }
+}
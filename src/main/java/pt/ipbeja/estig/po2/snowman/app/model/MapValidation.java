@@ -0,0 +1,69 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.List;
+
+/**
+ * MapValidation is the verdict of MapValidator on a map: whether its snowman can be built,
+ * in how many moves, and what is wrong with it when it cannot.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class MapValidation {
+
+    /**
+     * Outcome of a validation
+     */
+    public enum Verdict {
+        /// A solution was found
+        SOLVABLE,
+        /// The map is broken, or every reachable state was explored without a snowman
+        UNSOLVABLE,
+        /// The search ran out of time
+        UNKNOWN
+    }
+
+    private final Verdict verdict;
+    private final int moves;
+    private final boolean optimal;
+    private final List<String> problems;
+    private final long elapsedNanos;
+
+    MapValidation(Verdict verdict, int moves, boolean optimal, List<String> problems, long elapsedNanos) {
+        this.verdict = verdict;
+        this.moves = moves;
+        this.optimal = optimal;
+        this.problems = List.copyOf(problems);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    /// Moves of the solution found, -1 when none was found
+    public int getMoves() {
+        return moves;
+    }
+
+    /// True if the move count is the minimum, false if it is only the best found in time
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /// What makes the map unsolvable before any search, empty when nothing was detected
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /// Wall time of the validation
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        String result = verdict + (moves < 0 ? "" : " - " + moves + (optimal ? " moves (optimal)" : " moves"));
+        return problems.isEmpty() ? result : result + " - " + String.join("; ", problems);
+    }
+}
@@ -0,0 +1,153 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MapValidator checks in the background whether the snowman of a map can be built.
+ * <p>
+ * A validation first looks for broken maps: no monster, fewer than three snowballs, or
+ * not enough snow and snowballs for a snowman (DeadlockAnalyzer). Otherwise it searches
+ * for a solution within a timeout: an AStarSolver for most of it, which proves the move
+ * count optimal, then a PushSolver for the rest, which may still find a solution.
+ * <p>
+ * Validations run one at a time on a daemon thread, so loading a map never waits for
+ * them. Proven verdicts, unsolvable or solvable with an optimal move count, are cached by
+ * map content hash for the whole program, so validating such a map again returns
+ * immediately. A verdict that depends on the timeout, unknown or solvable with a move
+ * count not proven optimal, is not cached, so the map is searched again next time,
+ * possibly with a longer timeout.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class MapValidator {
+    /// Part of the timeout given to A* before trying the push-level search
+    private static final double ASTAR_SHARE = 0.8;
+
+    private static final Map<Long, MapValidation> CACHE = new ConcurrentHashMap<>();
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "map-validator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MapValidator() {
+    }
+
+    /**
+     * Starts validating a map, or returns its cached verdict. Only UNSOLVABLE verdicts and
+     * SOLVABLE ones with an optimal move count are cached.
+     *
+     * @param contentHash   hash of the map layout, see contentHash
+     * @param board         the map, as loaded; only its current state is read, right away
+     * @param timeoutMillis time the search may take, in milliseconds
+     * @return the verdict, completed immediately if it was cached
+     */
+    public static Future<MapValidation> validate(long contentHash, BoardModel board, long timeoutMillis) {
+        MapValidation cached = CACHE.get(contentHash);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        boolean hasMonster = board.getMonster() != null;
+        SnowmanState start = board.toState();
+        return CompletableFuture.supplyAsync(() -> {
+            MapValidation validation = check(start, hasMonster, timeoutMillis);
+            if (validation.getVerdict() == MapValidation.Verdict.UNSOLVABLE || validation.isOptimal()) {
+                CACHE.put(contentHash, validation);
+            }
+            return validation;
+        }, EXECUTOR);
+    }
+
+    /**
+     * Validates a map on the calling thread, without the cache.
+     *
+     * @param start         the initial state of the map
+     * @param hasMonster    false if the map has no monster
+     * @param timeoutMillis time the search may take, in milliseconds
+     * @return the verdict
+     */
+    static MapValidation check(SnowmanState start, boolean hasMonster, long timeoutMillis) {
+        long startNanos = System.nanoTime();
+        List<String> problems = new ArrayList<>();
+        if (!hasMonster) {
+            problems.add("Mapa sem monstro (M)");
+        }
+        int units = 0;
+        for (int cell = 0; cell < start.cells(); cell++) {
+            SnowballType type = start.ball(cell);
+            if (type != null) {
+                units += SnowmanRules.isStack(type) ? 2 : type == SnowballType.COMPLETE ? 3 : 1;
+            }
+        }
+        if (units < 3) {
+            problems.add("O mapa tem menos de três bolas de neve (SB)");
+        } else if (new DeadlockAnalyzer(start).isDeadlocked(start)) {
+            problems.add("Não há neve nem bolas de neve suficientes para formar o boneco de neve");
+        }
+        if (!problems.isEmpty()) {
+            return new MapValidation(MapValidation.Verdict.UNSOLVABLE, -1, false, problems,
+                    System.nanoTime() - startNanos);
+        }
+
+        Solver astar = new AStarSolver();
+        astar.setTimeLimit(Math.max(1, (long) (timeoutMillis * ASTAR_SHARE)));
+        Solution solution = astar.solve(start);
+        if (solution.getStatus() == Solution.Status.LIMIT_REACHED && !solution.hasMoves()) {
+            long left = timeoutMillis - (System.nanoTime() - startNanos) / 1_000_000;
+            if (left > 0) {
+                Solver pushes = new PushSolver();
+                pushes.setTimeLimit(left);
+                Solution found = pushes.solve(start);
+                if (found.isSolved()) {
+                    return new MapValidation(MapValidation.Verdict.SOLVABLE, found.getMoveCount(), false,
+                            problems, System.nanoTime() - startNanos);
+                }
+                // Without a time-out, the push-level search explored everything
+                if (found.getStatus() == Solution.Status.UNSOLVABLE) {
+                    solution = found;
+                }
+            }
+        }
+
+        // A solution A* found before its time-out is kept, but it is not proven optimal
+        MapValidation.Verdict verdict = solution.hasMoves() ? MapValidation.Verdict.SOLVABLE
+                : solution.getStatus() == Solution.Status.UNSOLVABLE ? MapValidation.Verdict.UNSOLVABLE
+                : MapValidation.Verdict.UNKNOWN;
+        return new MapValidation(verdict, solution.hasMoves() ? solution.getMoveCount() : -1, solution.isSolved(),
+                problems, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Hashes the symbols of a map layout (FNV-1a), so equal layouts get the same hash
+     * whatever their name or spacing.
+     *
+     * @param map the symbols of the map, one array per row
+     * @return the content hash
+     */
+    public static long contentHash(String[][] map) {
+        long hash = 0xCBF29CE484222325L;
+        for (String[] row : map) {
+            for (String symbol : row) {
+                for (int i = 0; i < symbol.length(); i++) {
+                    hash = (hash ^ symbol.charAt(i)) * 0x100000001B3L;
+                }
+                hash = (hash ^ ' ') * 0x100000001B3L;
+            }
+            hash = (hash ^ '\n') * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /// Number of cached verdicts
+    public static int cacheSize() {
+        return CACHE.size();
+    }
+}
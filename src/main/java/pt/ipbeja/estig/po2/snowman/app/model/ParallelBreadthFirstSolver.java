@@ -0,0 +1,174 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * ParallelBreadthFirstSolver is a level-synchronous version of BreadthFirstSolver that
+ * expands each BFS level on all the threads of a ForkJoinPool.
+ * <p>
+ * The frontier is split in chunks; each chunk decodes its states into its own scratch
+ * SnowmanState and offers the successors to a sharded ConcurrentStateSet. A successor
+ * reached by several states of the frontier keeps the smallest code (frontier index * 4
+ * + direction), and the next frontier is sorted by that code. This is exactly the order
+ * in which the sequential BFS would have stored them, so the solution found is the same
+ * as BreadthFirstSolver's, whatever the number of threads or how they were scheduled.
+ * <p>
+ * Only the codes of each level are kept to rebuild the path; the keys of the expanded
+ * levels stay in the visited set.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class ParallelBreadthFirstSolver extends Solver {
+    /// Number of chunks each thread gets per level, to balance uneven chunks
+    private static final int CHUNKS_PER_THREAD = 8;
+    /// log2 of the number of shards of the visited set
+    private static final int SHARD_BITS = 8;
+
+    private final int threads;
+
+    /**
+     * Creates a solver using every available processor.
+     */
+    public ParallelBreadthFirstSolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads number of worker threads (at least 1)
+     */
+    public ParallelBreadthFirstSolver(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public Solution solve(SnowmanState start) {
+        long startNanos = System.nanoTime();
+        if (SnowmanRules.isSolved(start)) {
+            return solved(start, List.of(), 1, 0, startNanos);
+        }
+
+        StateCodec codec = new StateCodec(start);
+        int words = codec.words();
+        ConcurrentStateSet visited = new ConcurrentStateSet(words, SHARD_BITS);
+        long[] frontier = new long[words];
+        codec.encode(start, frontier, 0);
+        visited.offer(frontier, 0, 0, 0);
+        visited.drain(new long[words], new int[1]);
+        int frontierSize = 1;
+
+        // codes.get(level)[i]: how the i-th state of that level was reached from the previous one
+        List<int[]> codes = new ArrayList<>();
+        codes.add(new int[]{-1});
+        AtomicInteger goal = new AtomicInteger(Integer.MAX_VALUE);
+        long expanded = 0;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int level = 1; frontierSize > 0; level++) {
+                if (isCancelled() || visited.size() >= maxStates || System.nanoTime() - startNanos >= timeLimitNanos) {
+                    return failed(Solution.Status.LIMIT_REACHED, visited.size(), expanded, startNanos);
+                }
+                expandLevel(pool, start, codec, visited, frontier, frontierSize, level, goal);
+                expanded += frontierSize;
+
+                if (goal.get() != Integer.MAX_VALUE) {
+                    return solved(start, path(codes, goal.get()), visited.size(), expanded, startNanos);
+                }
+
+                // Put the new states in the order the sequential BFS would have stored them
+                int added = visited.added();
+                long[] keys = new long[added * words];
+                int[] levelCodes = new int[added];
+                visited.drain(keys, levelCodes);
+                long[] order = new long[added];
+                for (int i = 0; i < added; i++) {
+                    order[i] = (long) levelCodes[i] << 32 | i;
+                }
+                Arrays.parallelSort(order);
+
+                frontier = new long[added * words];
+                for (int i = 0; i < added; i++) {
+                    int from = (int) order[i];
+                    System.arraycopy(keys, from * words, frontier, i * words, words);
+                    levelCodes[i] = (int) (order[i] >>> 32);
+                }
+                codes.add(levelCodes);
+                frontierSize = added;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return failed(Solution.Status.UNSOLVABLE, visited.size(), expanded, startNanos);
+    }
+
+    /**
+     * Expands every state of the frontier in parallel, offering the successors to the
+     * visited set and recording in goal the smallest code of a move completing a snowman.
+     */
+    private void expandLevel(ForkJoinPool pool, SnowmanState start, StateCodec codec, ConcurrentStateSet visited,
+                             long[] frontier, int frontierSize, int level, AtomicInteger goal) {
+        int chunks = Math.min(frontierSize, threads * CHUNKS_PER_THREAD);
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int words = codec.words();
+            long[] key = new long[words];
+            SnowmanState scratch = start.copy();
+            StateDelta journal = new StateDelta();
+            int from = (int) ((long) frontierSize * chunk / chunks);
+            int to = (int) ((long) frontierSize * (chunk + 1) / chunks);
+
+            for (int node = from; node < to; node++) {
+                scratch.setJournal(null);
+                codec.decode(frontier, node * words, scratch);
+                scratch.setJournal(journal);
+
+                for (Direction direction : DIRECTIONS) {
+                    journal.clear();
+                    int result = SnowmanRules.step(scratch, direction);
+                    if (result == SnowmanRules.BLOCKED) {
+                        continue;
+                    }
+                    int code = node * DIRECTIONS.length + direction.ordinal();
+                    if ((result & SnowmanRules.COMPLETED) != 0) {
+                        goal.accumulateAndGet(code, Math::min);
+                    } else {
+                        codec.encode(scratch, key, 0);
+                        visited.offer(key, 0, level, code);
+                    }
+                    scratch.revert(journal);
+                }
+            }
+        })).join();
+    }
+
+    /**
+     * Rebuilds the moves leading to a goal by following the codes back level by level.
+     *
+     * @param codes the codes of every level expanded so far
+     * @param goal  the code of the move that completed the snowman
+     * @return the moves from the start state, in order
+     */
+    private static List<Direction> path(List<int[]> codes, int goal) {
+        List<Direction> moves = new ArrayList<>();
+        int code = goal;
+        for (int level = codes.size() - 1; level >= 0 && code >= 0; level--) {
+            moves.add(DIRECTIONS[code % DIRECTIONS.length]);
+            code = codes.get(level)[code / DIRECTIONS.length];
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+}
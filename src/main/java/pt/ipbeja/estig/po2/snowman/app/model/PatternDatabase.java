@@ -0,0 +1,417 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * PatternDatabase holds the exact costs to goal of an abstraction of one map, computed
+ * offline and looked up by PatternDatabaseHeuristic.
+ * <p>
+ * The abstraction keeps a single snowball: its cell, its size (SMALL, MID or BIG) and
+ * which snow cells of the map are still left. The monster and every other snowball are
+ * dropped, except that each push still needs a passable cell behind the snowball. For
+ * each role (the size the snowball must end with) and each meeting cell, the database
+ * stores the fewest pushes that bring the snowball there with that size, found by a
+ * backward breadth-first search from the goal. Since other snowballs are dropped:
+ * - rolling onto a snow cell that is left may grow the snowball or not (another snowball
+ * may have taken it first), and the cell has no snow afterwards
+ * - the last push onto the meeting cell may stack on the snowball waiting there, which
+ * never grows
+ * so every cost is a lower bound on the pushes the real snowball needs.
+ * <p>
+ * Only the first snow cells of the map (at most MAX_TRACKED) are tracked, as many as
+ * the byte budget allows; the others may always grow the snowball or not, which keeps
+ * the costs lower bounds. A cost takes one byte, UNREACHABLE_BYTE meaning impossible.
+ * <p>
+ * Databases are written next to their map resource (map1.txt → map1.pdb) by the main
+ * method, with a header describing the map, and are memory-mapped when loaded, so the
+ * table lives in the page cache instead of the heap.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class PatternDatabase {
+    /// Default size limit of a table, in bytes
+    public static final int DEFAULT_MAX_BYTES = 64 << 20;
+    /// Most snow cells tracked exactly
+    public static final int MAX_TRACKED = 16;
+    /// Stored cost of an abstract state that cannot reach the goal
+    public static final int UNREACHABLE_BYTE = 0xFF;
+    /// File extension of databases
+    public static final String EXTENSION = ".pdb";
+
+    /// "SPDB"
+    private static final int MAGIC = 0x53504442;
+    private static final int VERSION = 1;
+    private static final int[] ROW_DELTA = {-1, 1, 0, 0};
+    private static final int[] COL_DELTA = {0, 0, -1, 1};
+    private static final int[] OPPOSITE = {1, 0, 3, 2};
+
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    private final boolean[] blocked;
+    /// Snow cells of the map, the tracked ones first
+    private final int[] snow;
+    private final int tracked;
+    /// Index of each cell in snow, -1 if the map has no snow there
+    private final int[] snowIndex;
+    private final ByteBuffer data;
+
+    private PatternDatabase(int rows, int cols, boolean[] blocked, int[] snow, int tracked, ByteBuffer data) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = rows * cols;
+        this.blocked = blocked;
+        this.snow = snow;
+        this.tracked = tracked;
+        this.snowIndex = new int[cells];
+        Arrays.fill(snowIndex, -1);
+        for (int i = 0; i < snow.length; i++) {
+            snowIndex[snow[i]] = i;
+        }
+        this.data = data;
+    }
+
+    /// Builds the database of a map within DEFAULT_MAX_BYTES
+    public static PatternDatabase build(SnowmanState map) {
+        return build(map, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Builds the database of a map, tracking as many snow cells as fit in the budget.
+     *
+     * @param map      the initial state of the map; its BLOCK and SNOW cells are used
+     * @param maxBytes the size limit of the table
+     * @return the database, held on the heap
+     * @throws IllegalArgumentException if not even a table without tracked snow fits
+     */
+    public static PatternDatabase build(SnowmanState map, long maxBytes) {
+        int cells = map.cells();
+        boolean[] blocked = new boolean[cells];
+        List<Integer> snowCells = new ArrayList<>();
+        for (int cell = 0; cell < cells; cell++) {
+            blocked[cell] = map.terrain(cell) == PositionContent.BLOCK;
+            if (map.terrain(cell) == PositionContent.SNOW) {
+                snowCells.add(cell);
+            }
+        }
+        int tracked = Math.min(snowCells.size(), MAX_TRACKED);
+        while (tracked > 0 && tableBytes(cells, tracked) > maxBytes) {
+            tracked--;
+        }
+        if (tableBytes(cells, tracked) > Math.min(maxBytes, Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("map too large for a pattern database: " + map.rows() + "x" + map.cols());
+        }
+
+        int[] snow = snowCells.stream().mapToInt(Integer::intValue).toArray();
+        ByteBuffer data = ByteBuffer.allocate((int) tableBytes(cells, tracked));
+        PatternDatabase database = new PatternDatabase(map.rows(), map.cols(), blocked, snow, tracked, data);
+        database.fill();
+        return database;
+    }
+
+    /// Bytes of the table of a map with the given cells and tracked snow cells
+    private static long tableBytes(int cells, int tracked) {
+        return (3L * cells * cells * 3) << tracked;
+    }
+
+    /**
+     * Loads a database file, memory-mapping its table.
+     *
+     * @param file the file written by write
+     * @return the database
+     * @throws IOException if the file cannot be read or is not a database
+     */
+    public static PatternDatabase load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.toString());
+        }
+    }
+
+    /**
+     * Finds the database written next to a map resource: the file with the same name and
+     * the EXTENSION. It is memory-mapped when the resource is a file, and copied to the
+     * heap when it lives inside a jar.
+     *
+     * @param mapResource the path of the map inside resources (e.g. "/map1.txt")
+     * @return the database, or null if the map has none
+     */
+    public static PatternDatabase forMap(String mapResource) {
+        int dot = mapResource.lastIndexOf('.');
+        String resource = (dot > mapResource.lastIndexOf('/') ? mapResource.substring(0, dot) : mapResource) + EXTENSION;
+        URL url = PatternDatabase.class.getResource(resource);
+        if (url == null) {
+            return null;
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return load(Path.of(url.toURI()));
+            }
+            try (InputStream stream = url.openStream()) {
+                return read(ByteBuffer.wrap(stream.readAllBytes()), resource);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /// Parses a database, the buffer holding the whole file
+    private static PatternDatabase read(ByteBuffer buffer, String name) throws IOException {
+        if (buffer.remaining() < 24 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not a pattern database: " + name);
+        }
+        int rows = buffer.getInt(8);
+        int cols = buffer.getInt(12);
+        int snowCount = buffer.getInt(16);
+        int tracked = buffer.getInt(20);
+        int cells = rows * cols;
+        int header = 24 + 4 * snowCount + cells;
+        if (rows < 1 || cols < 1 || tracked < 0 || tracked > Math.min(snowCount, MAX_TRACKED)
+                || buffer.capacity() != header + tableBytes(cells, tracked)) {
+            throw new IOException("corrupted pattern database: " + name);
+        }
+
+        int[] snow = new int[snowCount];
+        for (int i = 0; i < snowCount; i++) {
+            snow[i] = buffer.getInt(24 + 4 * i);
+        }
+        boolean[] blocked = new boolean[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            blocked[cell] = buffer.get(24 + 4 * snowCount + cell) != 0;
+        }
+        return new PatternDatabase(rows, cols, blocked, snow, tracked, buffer.slice(header, buffer.capacity() - header));
+    }
+
+    /**
+     * Writes the database to a file, replacing it if it exists.
+     *
+     * @param file the destination
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(24 + 4 * snow.length + cells);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(snow.length).putInt(tracked);
+        for (int cell : snow) {
+            header.putInt(cell);
+        }
+        for (boolean block : blocked) {
+            header.put((byte) (block ? 1 : 0));
+        }
+        header.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer table = data.duplicate().clear();
+            while (header.hasRemaining() || table.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, table});
+            }
+        }
+    }
+
+    /**
+     * Fewest pushes bringing a single snowball to a cell with the size of a role, in the
+     * abstraction of this map.
+     *
+     * @param role     the size the snowball must end with: 0 SMALL, 1 MID, 2 BIG
+     * @param target   the destination cell
+     * @param cell     the cell of the snowball
+     * @param size     the size of the snowball: 0 SMALL, 1 MID, 2 BIG
+     * @param snowMask the tracked snow cells still left, from snowMask
+     * @return the pushes, or DistanceTable.UNREACHABLE
+     */
+    public int cost(int role, int target, int cell, int size, int snowMask) {
+        int value = data.get(index(role, target, cell, size, snowMask)) & 0xFF;
+        return value == UNREACHABLE_BYTE ? DistanceTable.UNREACHABLE : value;
+    }
+
+    /// Bit set of the tracked snow cells that still have snow in a state
+    public int snowMask(SnowmanState state) {
+        int mask = 0;
+        for (int i = 0; i < tracked; i++) {
+            if (state.terrain(snow[i]) == PositionContent.SNOW) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return true if the state has the layout of this database's map: the same size and
+     * BLOCK cells, and snow only where the map had it
+     */
+    public boolean matches(SnowmanState state) {
+        if (state.rows() != rows || state.cols() != cols) {
+            return false;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            PositionContent terrain = state.terrain(cell);
+            if (blocked[cell] != (terrain == PositionContent.BLOCK)
+                    || terrain == PositionContent.SNOW && snowIndex[cell] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /// Number of snow cells tracked exactly
+    public int trackedSnow() {
+        return tracked;
+    }
+
+    /// Size of the table, in bytes
+    public int bytes() {
+        return data.capacity();
+    }
+
+    /// Position of an abstract state in the table
+    private int index(int role, int target, int cell, int size, int snowMask) {
+        return ((((role * cells + target) * cells + cell) * 3 + size) << tracked) | snowMask;
+    }
+
+    /// Computes the costs of every role and meeting cell
+    private void fill() {
+        int block = (cells * 3) << tracked;
+        byte[] costs = new byte[block];
+        int[] queue = new int[block];
+        for (int role = 0; role < 3; role++) {
+            for (int target = 0; target < cells; target++) {
+                Arrays.fill(costs, (byte) UNREACHABLE_BYTE);
+                if (!blocked[target]) {
+                    search(role, target, costs, queue);
+                }
+                data.put(index(role, target, 0, 0, 0), costs);
+            }
+        }
+    }
+
+    /**
+     * Backward breadth-first search from every abstract state with the snowball on the
+     * target with the size of the role. Costs are indexed by (cell * 3 + size, mask).
+     */
+    private void search(int role, int target, byte[] costs, int[] queue) {
+        int masks = 1 << tracked;
+        int tail = 0;
+        for (int mask = 0; mask < masks; mask++) {
+            tail = visit(target, role, mask, 0, costs, queue, tail);
+        }
+        // The last push may stack onto the snowball waiting on the target
+        for (int dir = 0; dir < 4; dir++) {
+            int from = pusher(target, dir);
+            if (from >= 0) {
+                for (int mask = 0; mask < masks; mask++) {
+                    tail = visit(from, role, mask, 1, costs, queue, tail);
+                }
+            }
+        }
+
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            int mask = node & (masks - 1);
+            int cell = (node >>> tracked) / 3;
+            int size = (node >>> tracked) % 3;
+            int next = Math.min((costs[node] & 0xFF) + 1, UNREACHABLE_BYTE - 1);
+            int snowAt = snowIndex[cell];
+            int bit = snowAt >= 0 && snowAt < tracked ? 1 << snowAt : 0;
+            if ((mask & bit) != 0) {
+                continue; // the snowball took or found no snow when arriving here
+            }
+
+            for (int dir = 0; dir < 4; dir++) {
+                int from = pusher(cell, dir);
+                if (from < 0) {
+                    continue;
+                }
+                // The snowball arrived without growing, over no snow or snow already taken
+                tail = visit(from, size, mask, next, costs, queue, tail);
+                if (snowAt < 0) {
+                    continue;
+                }
+                tail = visit(from, size, mask | bit, next, costs, queue, tail);
+                // The snowball arrived over snow and grew into this size
+                if (size > 0) {
+                    tail = visit(from, size - 1, mask | bit, next, costs, queue, tail);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cell from which a snowball is pushed onto the given one in the direction dir,
+     * provided the monster has a passable cell behind it.
+     *
+     * @return the cell, or -1 if that push is impossible
+     */
+    private int pusher(int cell, int dir) {
+        int from = neighbour(cell, OPPOSITE[dir]);
+        return from >= 0 && neighbour(from, OPPOSITE[dir]) >= 0 ? from : -1;
+    }
+
+    /// Passable neighbour of a cell in a direction, or -1
+    private int neighbour(int cell, int dir) {
+        int row = cell / cols + ROW_DELTA[dir];
+        int col = cell % cols + COL_DELTA[dir];
+        if (row < 0 || row >= rows || col < 0 || col >= cols || blocked[row * cols + col]) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    /// Records the cost of an abstract state the first time it is reached
+    private int visit(int cell, int size, int mask, int cost, byte[] costs, int[] queue, int tail) {
+        int node = ((cell * 3 + size) << tracked) | mask;
+        if ((costs[node] & 0xFF) != UNREACHABLE_BYTE) {
+            return tail;
+        }
+        costs[node] = (byte) cost;
+        queue[tail] = node;
+        return tail + 1;
+    }
+
+    /**
+     * Builds the database of every map (*.txt) in a resources directory and writes it
+     * next to the map. Maps too large for a database are skipped.
+     *
+     * @param args the resources directory, src/main/resources by default
+     * @throws IOException if the directory cannot be listed or a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "src/main/resources");
+        List<Path> maps;
+        try (Stream<Path> files = Files.list(directory)) {
+            maps = files.filter(file -> file.getFileName().toString().endsWith(".txt")).sorted().toList();
+        }
+        for (Path map : maps) {
+            String name = map.getFileName().toString();
+            long start = System.nanoTime();
+            SnowmanState state;
+            try (InputStream in = Files.newInputStream(map)) {
+                state = MapTokenizer.tokenize(in, map.toString()).toBoardModel().toState();
+            }
+            PatternDatabase database;
+            try {
+                database = build(state);
+            } catch (IllegalArgumentException e) {
+                System.out.printf("%s: %s%n", map, e.getMessage());
+                continue;
+            }
+            Path file = directory.resolve(name.substring(0, name.length() - 4) + EXTENSION);
+            database.write(file);
+            System.out.printf("%s: %d of %d snow cells tracked, %d bytes, %d ms%n", file, database.tracked,
+                    database.snow.length, database.bytes(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
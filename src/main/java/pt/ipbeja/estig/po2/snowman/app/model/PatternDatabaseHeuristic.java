@@ -0,0 +1,67 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * PatternDatabaseHeuristic is a SnowmanHeuristic that bounds the pushes of each single
+ * snowball with the costs of a PatternDatabase instead of plain push distances, so the
+ * snow each snowball still needs to grow into its role is accounted for. The result is
+ * still admissible and never lower than the one of SnowmanHeuristic.
+ * <p>
+ * Parts of a stack keep using push distances, since splitting a stack moves its top
+ * without rolling it over snow. States that do not match the map of the database are
+ * estimated exactly like SnowmanHeuristic does.
+ * <p>
+ * Instances are not thread-safe; the database itself can be shared.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class PatternDatabaseHeuristic extends SnowmanHeuristic {
+    private final PatternDatabase database;
+    private boolean matching;
+    private int snowMask;
+
+    /**
+     * @param database the database of the map the estimated states belong to
+     */
+    public PatternDatabaseHeuristic(PatternDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Heuristic using the database written next to a map resource, built in memory if
+     * there is none. Maps too large for a database get a plain SnowmanHeuristic.
+     *
+     * @param mapResource the path of the map inside resources (e.g. "/map1.txt")
+     * @return the heuristic
+     */
+    public static SnowmanHeuristic forMap(String mapResource) {
+        PatternDatabase database = PatternDatabase.forMap(mapResource);
+        if (database == null) {
+            try {
+                database = PatternDatabase.build(new MapReader().loadMapFromFile(mapResource).toState());
+            } catch (IllegalArgumentException e) {
+                return new SnowmanHeuristic();
+            }
+        }
+        return new PatternDatabaseHeuristic(database);
+    }
+
+    /// The database looked up
+    public PatternDatabase getDatabase() {
+        return database;
+    }
+
+    @Override
+    protected void prepare(SnowmanState state) {
+        matching = database.matches(state);
+        snowMask = matching ? database.snowMask(state) : 0;
+    }
+
+    @Override
+    protected int pushes(int role, int unit, int cell) {
+        if (!matching || isStacked(unit)) {
+            return super.pushes(role, unit, cell);
+        }
+        return database.cost(role, cell, unitCell(unit), unitSize(unit), snowMask);
+    }
+}
@@ -0,0 +1,201 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * PortfolioSolver races several solvers on the same map, each on its own thread, since
+ * different maps favour different searches. By default it races BreadthFirstSolver,
+ * AStarSolver, GreedyBestFirstSolver and PushSolver.
+ * <p>
+ * The first strategy to finish with an answer wins: a solution, or the proof that there
+ * is none. The others are cancelled and stop at their next limit check. When waiting for
+ * the best is enabled, every strategy runs to the end, or until the time limit, and the
+ * shortest solution wins. The time limit and state limit of the portfolio apply to every
+ * strategy. A strategy stopped by a limit with a solution it found (see AStarSolver) is
+ * kept as a candidate, while the others may still finish.
+ * <p>
+ * The winner of every search is kept in a log, by map name, and the wins are counted by
+ * strategy, to help choose the default solver.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class PortfolioSolver extends Solver {
+    private final Map<String, Supplier<Solver>> strategies = new LinkedHashMap<>();
+    private final Map<String, Integer> wins = new LinkedHashMap<>();
+    private final List<String> log = new ArrayList<>();
+    private boolean waitForBest;
+    private String winner;
+
+    /**
+     * Creates a portfolio of the breadth-first, A*, greedy best-first and push-level searches.
+     */
+    public PortfolioSolver() {
+        addStrategy("BFS", BreadthFirstSolver::new);
+        addStrategy("A*", AStarSolver::new);
+        addStrategy("Greedy", GreedyBestFirstSolver::new);
+        addStrategy("Push", PushSolver::new);
+    }
+
+    /**
+     * Adds a strategy to the race; a new solver is created for every search.
+     *
+     * @param name    the name used in the log
+     * @param factory creates the solver
+     */
+    public void addStrategy(String name, Supplier<Solver> factory) {
+        strategies.put(name, factory);
+    }
+
+    /// Removes every strategy, to build a portfolio from scratch
+    public void clearStrategies() {
+        strategies.clear();
+    }
+
+    /**
+     * @param waitForBest true to wait for every strategy and keep the shortest solution,
+     *                    false to stop at the first answer
+     */
+    public void setWaitForBest(boolean waitForBest) {
+        this.waitForBest = waitForBest;
+    }
+
+    /**
+     * Loads a map with MapReader and solves it, logging the winner under the map name.
+     *
+     * @param resourcePath the path of the map file inside resources
+     * @return the solution of the winning strategy
+     */
+    public Solution solve(String resourcePath) {
+        MapReader reader = new MapReader();
+        BoardModel board = reader.loadMapFromFile(resourcePath);
+        return solve(board.toState(), reader.getMapName());
+    }
+
+    @Override
+    public Solution solve(SnowmanState start) {
+        return solve(start, "map");
+    }
+
+    /**
+     * Races the strategies on a state and logs the winner under the given map name.
+     *
+     * @param start   the state to solve; it is not modified
+     * @param mapName the name to log the winner under
+     * @return the solution of the winning strategy, LIMIT_REACHED if none answered in time,
+     *         with the moves of the shortest solution found if there is one
+     */
+    public Solution solve(SnowmanState start, String mapName) {
+        long startNanos = System.nanoTime();
+        List<String> names = new ArrayList<>(strategies.keySet());
+        List<Solver> solvers = new ArrayList<>();
+        for (String name : names) {
+            Solver solver = strategies.get(name).get();
+            solver.setMaxStates(maxStates);
+            solver.setDeadlockPruning(pruneDeadlocks);
+            if (timeLimitNanos != Long.MAX_VALUE) {
+                solver.setTimeLimit(Math.max(1, timeLimitNanos / 1_000_000));
+            }
+            solvers.add(solver);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, solvers.size()));
+        ExecutorCompletionService<Integer> race = new ExecutorCompletionService<>(executor);
+        // Written by each strategy's thread, read after its future completed
+        Solution[] results = new Solution[solvers.size()];
+        for (int i = 0; i < solvers.size(); i++) {
+            int index = i;
+            SnowmanState copy = start.copy();
+            race.submit(() -> {
+                results[index] = solvers.get(index).solve(copy);
+                return index;
+            });
+        }
+
+        int best = -1;
+        try {
+            for (int finished = 0; finished < solvers.size(); finished++) {
+                Future<Integer> done = race.poll(remainingNanos(startNanos), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break; // out of time
+                }
+                int index = done.get();
+                Solution solution = results[index];
+                if (solution.getStatus() == Solution.Status.LIMIT_REACHED && !solution.hasMoves()) {
+                    continue;
+                }
+                if (best < 0 || solution.hasMoves()
+                        && solution.getMoveCount() < results[best].getMoveCount()) {
+                    best = index;
+                }
+                if (solution.getStatus() == Solution.Status.LIMIT_REACHED) {
+                    continue; // a solution found before the limit, still wait for a proven answer
+                }
+                if (!waitForBest || !solution.isSolved()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("strategy failed: " + e.getCause(), e.getCause());
+        } finally {
+            solvers.forEach(Solver::cancel);
+            executor.shutdown();
+        }
+
+        if (best < 0) {
+            record(mapName, null, startNanos);
+            return failed(Solution.Status.LIMIT_REACHED, 0, 0, startNanos);
+        }
+        record(mapName, names.get(best), startNanos);
+        Solution solution = results[best];
+        return new Solution(solution.getStatus(), solution.getMoves(), solution.getMonsterMoves(),
+                solution.getStatesExplored(), solution.getNodesExpanded(), System.nanoTime() - startNanos);
+    }
+
+    /// Time left before the time limit, in nanoseconds
+    private long remainingNanos(long startNanos) {
+        if (timeLimitNanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, timeLimitNanos - (System.nanoTime() - startNanos));
+    }
+
+    /// Logs and counts the winner of a search, null when no strategy answered
+    private void record(String mapName, String name, long startNanos) {
+        winner = name;
+        String entry = String.format("%s: %s in %d ms", mapName, name == null ? "no winner" : name,
+                (System.nanoTime() - startNanos) / 1_000_000);
+        log.add(entry);
+        if (name != null) {
+            wins.merge(name, 1, Integer::sum);
+        }
+    }
+
+    /// Name of the strategy that won the last search, null if none answered
+    public String getWinner() {
+        return winner;
+    }
+
+    /// Number of searches won by each strategy
+    public Map<String, Integer> getWins() {
+        return Collections.unmodifiableMap(wins);
+    }
+
+    /// One line per search: the map name, the winner and the time taken
+    public List<String> getLog() {
+        return Collections.unmodifiableList(log);
+    }
+}
@@ -25,25 +25,7 @@ public class Position {
      * @return a new Position shifted by one cell in that direction
      */
     public Position changePosition(Direction direction) {
-        int newRow = row;
-        int newCol = col;
-
-        switch (direction) {
-            case UP:
-                newRow--;
-                break;
-            case DOWN:
-                newRow++;
-                break;
-            case LEFT:
-                newCol--;
-                break;
-            case RIGHT:
-                newCol++;
-                break;
-        }
-
-        return new Position(newRow, newCol);
+        return new Position(row + direction.getRowDelta(), col + direction.getColDelta());
     }
 
     /**
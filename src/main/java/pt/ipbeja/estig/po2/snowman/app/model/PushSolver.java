@@ -0,0 +1,222 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PushSolver searches breadth-first over pushes instead of single moves. Most moves only
+ * walk the monster around without touching a snowball, and all the positions the monster
+ * can walk to are equivalent: from any of them it can reach the others. So a state keeps
+ * the monster on the smallest cell of the region it can walk to (a flood fill over the
+ * cells that are not BLOCK and hold no snowball), and a state is only expanded by macro
+ * moves: walk to a cell of the region next to a snowball, then move into it (pushing,
+ * stacking or splitting a stack).
+ * <p>
+ * The solution found uses the fewest macro moves. Each macro move is then expanded into
+ * concrete directions, walking by a shortest path, so the total number of moves is short
+ * but not necessarily the minimum BreadthFirstSolver would find.
+ * <p>
+ * With deadlock pruning enabled, states DeadlockAnalyzer proves unsolvable are not stored.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class PushSolver extends Solver {
+
+    // Scratch arrays of the flood fills, indexed by cell; a cell is in a fill when its stamp is current
+    private int[] queue;
+    private int[] stamps;
+    private int stamp;
+
+    @Override
+    public Solution solve(SnowmanState start) {
+        long startNanos = System.nanoTime();
+        if (SnowmanRules.isSolved(start)) {
+            return solved(start, List.of(), 1, 0, startNanos);
+        }
+
+        queue = new int[start.cells()];
+        stamps = new int[start.cells()];
+        stamp = 0;
+        SnowmanState scratch = start.copy();
+        normalize(scratch);
+        StateCodec codec = new StateCodec(start);
+        StateTable visited = new StateTable(codec.words(), 1 << 12);
+        long[] key = new long[codec.words()];
+        codec.encode(scratch, key, 0);
+        visited.add(key, 0, -1, -1);
+        // Cell the monster walked to before each macro move, by state id
+        int[] walks = new int[1 << 12];
+
+        StateDelta journal = new StateDelta();
+        DeadlockAnalyzer deadlocks = pruneDeadlocks ? new DeadlockAnalyzer(start) : null;
+        int[] region = new int[start.cells()];
+        int cols = start.cols();
+
+        for (int node = 0; node < visited.size(); node++) {
+            if (limitReached(visited.size(), node, startNanos)) {
+                return failed(Solution.Status.LIMIT_REACHED, visited.size(), node, startNanos);
+            }
+            visited.key(node, key, 0);
+            scratch.setJournal(null);
+            codec.decode(key, 0, scratch);
+            int cells = fill(scratch, scratch.monsterCell());
+            System.arraycopy(queue, 0, region, 0, cells);
+            boolean walkCompletes = canCompleteByWalking(scratch);
+            scratch.setJournal(journal);
+
+            for (int i = 0; i < cells; i++) {
+                int cell = region[i];
+                for (Direction direction : DIRECTIONS) {
+                    int row = cell / cols + direction.getRowDelta();
+                    int col = cell % cols + direction.getColDelta();
+                    if (!scratch.passable(row, col)
+                            || scratch.ball(scratch.cell(row, col)) == null && !walkCompletes) {
+                        continue;
+                    }
+                    journal.clear();
+                    scratch.setMonster(cell);
+                    int result = SnowmanRules.step(scratch, direction);
+                    if ((result & SnowmanRules.COMPLETED) != 0) {
+                        List<Direction> moves = expand(start, visited, walks, node, cell, direction);
+                        return solved(start, moves, visited.size(), node + 1, startNanos);
+                    }
+                    if ((result & (SnowmanRules.PUSHED | SnowmanRules.UNSTACKED)) != 0) {
+                        normalize(scratch);
+                        codec.encode(scratch, key, 0);
+                        if (deadlocks == null || !visited.contains(key, 0) && !deadlocks.isDeadlocked(scratch)) {
+                            int id = visited.add(key, 0, node, direction.ordinal());
+                            if (id >= 0) {
+                                if (id == walks.length) {
+                                    walks = Arrays.copyOf(walks, id * 2);
+                                }
+                                walks[id] = cell;
+                            }
+                        }
+                    }
+                    scratch.revert(journal);
+                }
+            }
+        }
+        return failed(Solution.Status.UNSOLVABLE, visited.size(), visited.size(), startNanos);
+    }
+
+    /**
+     * Floods the cells the monster can walk to from a cell, without touching snowballs.
+     * The cells are left in queue, in the order they were reached.
+     *
+     * @return the number of cells reached
+     */
+    private int fill(SnowmanState state, int from) {
+        stamp++;
+        int cols = state.cols();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        stamps[from] = stamp;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (Direction direction : DIRECTIONS) {
+                int row = cell / cols + direction.getRowDelta();
+                int col = cell % cols + direction.getColDelta();
+                if (!state.passable(row, col)) {
+                    continue;
+                }
+                int next = state.cell(row, col);
+                if (stamps[next] != stamp && state.ball(next) == null) {
+                    stamps[next] = stamp;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /// Moves the monster to the smallest cell of the region it can walk to
+    private void normalize(SnowmanState state) {
+        int cells = fill(state, state.monsterCell());
+        int smallest = state.monsterCell();
+        for (int i = 0; i < cells; i++) {
+            smallest = Math.min(smallest, queue[i]);
+        }
+        if (smallest != state.monsterCell()) {
+            state.setMonster(smallest);
+        }
+    }
+
+    /// True if a BIG_MID has a SMALL above it, so walking next to it may complete the snowman
+    private static boolean canCompleteByWalking(SnowmanState state) {
+        for (int cell = state.cols(); cell < state.cells(); cell++) {
+            if (state.ball(cell) == SnowballType.BIG_MID && state.ball(cell - state.cols()) == SnowballType.SMALL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Turns the macro moves leading to a state, plus a last one, into the directions to
+     * press from the start state, walking by shortest paths between the pushes.
+     */
+    private List<Direction> expand(SnowmanState start, StateTable visited, int[] walks, int node, int lastCell,
+                                   Direction last) {
+        List<Integer> cells = new ArrayList<>();
+        List<Direction> pushes = new ArrayList<>();
+        cells.add(lastCell);
+        pushes.add(last);
+        for (int id = node; visited.parent(id) >= 0; id = visited.parent(id)) {
+            cells.add(walks[id]);
+            pushes.add(DIRECTIONS[visited.move(id)]);
+        }
+        Collections.reverse(cells);
+        Collections.reverse(pushes);
+
+        SnowmanState replay = start.copy();
+        List<Direction> moves = new ArrayList<>();
+        for (int i = 0; i < pushes.size(); i++) {
+            List<Direction> walk = new ArrayList<>(walk(replay, cells.get(i)));
+            walk.add(pushes.get(i));
+            for (Direction direction : walk) {
+                moves.add(direction);
+                if ((SnowmanRules.step(replay, direction) & SnowmanRules.COMPLETED) != 0) {
+                    return moves;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Finds a shortest walk of the monster to a cell of its region.
+     *
+     * @return the directions to press
+     */
+    private List<Direction> walk(SnowmanState state, int target) {
+        int[] from = new int[state.cells()];
+        Arrays.fill(from, -1);
+        int cells = fill(state, state.monsterCell());
+        int cols = state.cols();
+        // Parents of a breadth-first fill: queue holds the cells in order of distance
+        for (int i = 0; i < cells; i++) {
+            int cell = queue[i];
+            for (Direction direction : DIRECTIONS) {
+                int row = cell / cols + direction.getRowDelta();
+                int col = cell % cols + direction.getColDelta();
+                if (state.passable(row, col)) {
+                    int next = state.cell(row, col);
+                    if (stamps[next] == stamp && from[next] < 0 && next != state.monsterCell()) {
+                        from[next] = cell * DIRECTIONS.length + direction.ordinal();
+                    }
+                }
+            }
+        }
+        List<Direction> walk = new ArrayList<>();
+        for (int cell = target; cell != state.monsterCell(); cell = from[cell] / DIRECTIONS.length) {
+            walk.add(DIRECTIONS[from[cell] % DIRECTIONS.length]);
+        }
+        Collections.reverse(walk);
+        return walk;
+    }
+}
@@ -46,10 +46,7 @@ public class Snowball extends MobileElement {
      * Does nothing if the type is already BIG or a stacked variant.
      */
     public void increaseSnowballType() {
-        switch (type) {
-            case SMALL -> setType(SnowballType.MID);
-            case MID -> setType(SnowballType.BIG);
-        }
+        setType(SnowmanRules.grown(type));
     }
 
 
@@ -63,17 +60,7 @@ public class Snowball extends MobileElement {
      */
     public boolean canStackOn(Snowball other) {
         // Determine stacking eligibility
-        switch (this.type) {
-            case SMALL:
-                return other.type == SnowballType.MID ||
-                        other.type == SnowballType.BIG || other.type == SnowballType.BIG_MID;
-            case MID:
-                return other.type == SnowballType.BIG;
-
-            case BIG: // BIG can´t stack on
-                return false;
-        }
-        return false;
+        return SnowmanRules.stackedType(this.type, other.type) != null;
     }
 
     /**
@@ -89,34 +76,21 @@ public class Snowball extends MobileElement {
      * @return the new stack type, or null if not allowed
      */
     public SnowballType stackOn(Snowball other) {
-        if (!canStackOn(other)) {
-            return null; // Can't Stack on
-        }
-
-        // Compute resulting type based on combination
-        if (this.type == SnowballType.SMALL && other.type == SnowballType.MID) {
-            return SnowballType.MID_SMALL;
-        } else if (this.type == SnowballType.SMALL && other.type == SnowballType.BIG) {
-            return SnowballType.BIG_SMALL;
-        } else if (this.type == SnowballType.MID && other.type == SnowballType.BIG) {
-            return SnowballType.BIG_MID;
-        } else if (this.type == SnowballType.SMALL && other.type == SnowballType.BIG_MID) {
-            return SnowballType.COMPLETE;
-        }
-
-        return null;
+        // Compute resulting type based on combination, null if it can't stack on
+        return SnowmanRules.stackedType(this.type, other.type);
     }
 
 
     /**
      * Attempts to move this snowball one cell in the specified direction.
-     * Movement rules:
+     * The rules are applied by the headless kernel (SnowmanRules.push):
      * 1. A COMPLETE snowman cannot move.
      * 2. Compute target cell coordinates based on direction.
      * 3. If the target is invalid (out of bounds or blocked), return false.
-     * 4. If another snowball occupies the target, attempt to stack via board.tryStackSnowballs().
-     * 5. If the target cell has snow, remove the snow and call increaseSnowballType().
-     * 6. Update this snowball's position to the target and return true.
+     * 4. If another snowball occupies the target, attempt to stack on it.
+     * 5. If the target cell has snow, remove the snow and grow (SMALL → MID → BIG).
+     * 6. Move this snowball to the target and return true.
+     * The snowball must be one placed on the given board.
      *
      * @param direction the Direction to move (UP, DOWN, LEFT, RIGHT)
      * @param board     reference to the BoardModel for validation and updates
@@ -124,45 +98,7 @@ public class Snowball extends MobileElement {
      */
     @Override
     public boolean move(Direction direction, BoardModel board) {
-        // Prevent movement if already a complete snowman
-        if (this.type == SnowballType.COMPLETE) {
-            return false;
-        }
-
-        // Calculate new target position
-        Position position = new Position(row, col);
-        position = position.changePosition(direction);
-        int newRow = position.getRow();
-        int newCol = position.getCol();
-
-        // Check if target position is valid on the board
-        if (!board.validPosition(newRow, newCol)) {
-            return false;
-        }
-
-        // If another snowball is present, attempt to stack
-        Snowball target = board.getSnowballInPosition(newRow, newCol);
-        if (target != null) {
-
-            return board.tryStackSnowballs(this, target);
-        }
-
-        // Inspect terrain of the target cell
-        PositionContent destination = board.getPositionContent(newRow, newCol);
-        if (destination == PositionContent.BLOCK) {
-            return false;
-        }
-
-        // If it's snow, consume it and grow
-        if (destination == PositionContent.SNOW) {
-            board.setPositionContent(newRow, newCol, PositionContent.NO_SNOW);
-            increaseSnowballType();
-        }
-
-        // Update position fields
-        row = newRow;
-        col = newCol;
-        return true;
+        return board.moveSnowball(direction, this);
     }
 
     /**
@@ -173,13 +109,7 @@ public class Snowball extends MobileElement {
      */
     public boolean isSnowballStack() {
         // Return true for known partial-stack types
-        SnowballType type = this.getType();
-        if (type == SnowballType.BIG_MID || type == SnowballType.MID_SMALL ||
-                type == SnowballType.BIG_SMALL) {
-            return true;
-        }
-
-        return false;
+        return SnowmanRules.isStack(this.getType());
     }
 
 
@@ -193,16 +123,17 @@ public class Snowball extends MobileElement {
      * @return a new Snowball representing the bottom part, or null if not applicable
      */
     public Snowball getBottom() {
-        // Determine bottom based on stack type
-        return switch (this.getType()) {
-
-            // a MID_SMALL stack has a MID snowball at its bottom position
-            case MID_SMALL -> new Snowball(this.getRow(), this.getCol(), SnowballType.MID);
+        SnowballType bottomType = getBottomType();
+        return bottomType == null ? null : new Snowball(this.getRow(), this.getCol(), bottomType);
+    }
 
-            // BIG_MID and BIG_SMALL stacks both have a BIG snowball as the bottom
-            case BIG_MID, BIG_SMALL -> new Snowball(this.getRow(), this.getCol(), SnowballType.BIG);
-            default -> null;
-        };
+    /**
+     * Returns the type of the bottom component of a stacked snowball.
+     *
+     * @return MID for a MID_SMALL stack, BIG for BIG_MID and BIG_SMALL stacks, null otherwise
+     */
+    public SnowballType getBottomType() {
+        return SnowmanRules.bottomOf(this.getType());
     }
 
     /**
@@ -217,21 +148,22 @@ public class Snowball extends MobileElement {
      * @return a new Snowball representing the top part at its correct position, or null if not applicable
      */
     public Snowball getTop(Direction direction) {
-        //Calculate the target position for the top component
-        // Start from the base’s row and column, then move one cell in the specified direction
-        Position position = new Position(this.getRow(),
-                this.getCol()).changePosition(direction);
-
         // Determine the SnowballType of the top component based on the stack type
-        SnowballType type = switch (this.getType()) {
-            case MID_SMALL, BIG_SMALL -> SnowballType.SMALL;
-            case BIG_MID -> SnowballType.MID;
-            default -> null;
-        };
+        SnowballType type = getTopType();
 
-        // Create and return the new Snowball if type is valid, otherwise return null
+        // Create the new Snowball one cell away from the base in the given direction,
+        // if type is valid, otherwise return null
         return type == null
                 ? null
-                : new Snowball(position.getRow(), position.getCol(), type);
+                : new Snowball(this.getRow() + direction.getRowDelta(), this.getCol() + direction.getColDelta(), type);
+    }
+
+    /**
+     * Returns the type of the top component of a stacked snowball.
+     *
+     * @return SMALL for MID_SMALL and BIG_SMALL stacks, MID for a BIG_MID stack, null otherwise
+     */
+    public SnowballType getTopType() {
+        return SnowmanRules.topOf(this.getType());
     }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import pt.ipbeja.estig.po2.snowman.app.model.interfaces.Heuristic;
+
+import java.util.Arrays;
+
+/**
+ * SnowmanHeuristic is an admissible estimate of the moves still needed to build the
+ * snowman, used by AStarSolver.
+ * <p>
+ * The snowman needs three single snowballs (units) meeting at one cell: a bottom that is
+ * or grows into a BIG, a middle that is or grows into a MID, and a SMALL top. A stack is
+ * treated as its two units on the same cell. Every move pushes at most one unit by one
+ * cell, so for each way of choosing the three units:
+ * - the units need at least the sum of their push distances (from the map's
+ * DistanceTable) to a common cell, the top possibly finishing directly above it;
+ * - every growth (SMALL → MID → BIG) needs a push onto snow, and the board must still
+ * have enough snow for all of them, otherwise the choice is impossible.
+ * Before any unit moves, the monster must also walk next to one of them. The estimate is
+ * the cheapest choice plus that walk, and DEAD_END when no choice is possible, which
+ * happens when there is no longer enough snow or suitable snowballs, or when they can no
+ * longer be pushed together.
+ * <p>
+ * Instances keep scratch arrays and are not thread-safe. The distance table is looked up
+ * again whenever the estimated state belongs to another map. Subclasses can replace the
+ * push distance of a unit with a tighter lower bound by overriding pushes, as
+ * PatternDatabaseHeuristic does.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class SnowmanHeuristic implements Heuristic {
+    /// Roles of the units, equal to the size each one must have: SMALL, MID and BIG
+    protected static final int TOP = 0;
+    protected static final int MIDDLE = 1;
+    protected static final int BOTTOM = 2;
+
+    private int[] unitCells = new int[8];
+    private int[] unitSizes = new int[8];
+    private boolean[] unitStacked = new boolean[8];
+    /// Push distances from the cell of each unit, looked up once per estimate
+    private int[][] unitPushes = new int[8][];
+    private int units;
+    private DistanceTable distances;
+
+    @Override
+    public int estimate(SnowmanState state) {
+        if (distances == null || !distances.matches(state)) {
+            distances = DistanceTable.of(state);
+        }
+        int snow = 0;
+        units = 0;
+        for (int cell = 0; cell < state.cells(); cell++) {
+            if (state.terrain(cell) == PositionContent.SNOW) {
+                snow++;
+            }
+            SnowballType type = state.ball(cell);
+            if (type == null) {
+                continue;
+            }
+            if (type == SnowballType.COMPLETE) {
+                return 0;
+            }
+            if (SnowmanRules.isStack(type)) {
+                addUnit(cell, SnowmanRules.bottomOf(type), true);
+                addUnit(cell, SnowmanRules.topOf(type), true);
+            } else {
+                addUnit(cell, type, false);
+            }
+        }
+        for (int unit = 0; unit < units; unit++) {
+            unitPushes[unit] = distances.pushesFrom(unitCells[unit]);
+        }
+        prepare(state);
+
+        int best = DEAD_END;
+        for (int bottom = 0; bottom < units; bottom++) {
+            int bottomGrowth = 2 - unitSizes[bottom];
+            for (int middle = 0; middle < units; middle++) {
+                if (middle == bottom || unitSizes[middle] > 1) continue;
+                int growth = bottomGrowth + 1 - unitSizes[middle];
+                if (growth > snow) continue;
+                for (int top = 0; top < units; top++) {
+                    if (top == bottom || top == middle || unitSizes[top] != 0) continue;
+                    int pushes = meeting(state, bottom, middle, top);
+                    if (pushes != DistanceTable.UNREACHABLE) {
+                        best = Math.min(best, Math.max(pushes, growth));
+                    }
+                }
+            }
+        }
+        if (best == DEAD_END) {
+            return DEAD_END;
+        }
+
+        // The monster has to walk next to a unit before moving any of them
+        int approach = DistanceTable.UNREACHABLE;
+        for (int unit = 0; unit < units; unit++) {
+            approach = Math.min(approach, distances.approach(state.monsterCell(), unitCells[unit]));
+        }
+        if (approach == DistanceTable.UNREACHABLE) {
+            return DEAD_END;
+        }
+        return Math.max(1, best + approach);
+    }
+
+    /**
+     * Fewest pushes bringing the bottom and middle units to a common cell and the top
+     * unit onto it or directly above it.
+     *
+     * @return the pushes, or UNREACHABLE if the three cannot meet
+     */
+    private int meeting(SnowmanState state, int bottom, int middle, int top) {
+        int cols = state.cols();
+        int best = DistanceTable.UNREACHABLE;
+        for (int cell = 0; cell < state.cells(); cell++) {
+            int base = pushes(BOTTOM, bottom, cell) + pushes(MIDDLE, middle, cell);
+            if (base >= best) {
+                continue;
+            }
+            int onTop = pushes(TOP, top, cell);
+            if (cell >= cols) {
+                onTop = Math.min(onTop, pushes(TOP, top, cell - cols));
+            }
+            best = Math.min(best, base + onTop);
+        }
+        return best;
+    }
+
+    /**
+     * Lower bound on the pushes needed to bring a unit to a cell in the given role. The
+     * default is the push distance of the map, which ignores snow and growth.
+     *
+     * @param role TOP, MIDDLE or BOTTOM
+     * @param unit the index of the unit
+     * @param cell the destination cell
+     * @return the pushes, or UNREACHABLE
+     */
+    protected int pushes(int role, int unit, int cell) {
+        return unitPushes[unit][cell];
+    }
+
+    /// Called once per estimate, after the units of the state are known and before pushes
+    protected void prepare(SnowmanState state) {
+    }
+
+    /// Distance table of the map being estimated
+    protected DistanceTable distances() {
+        return distances;
+    }
+
+    /// Cell of a unit
+    protected int unitCell(int unit) {
+        return unitCells[unit];
+    }
+
+    /// Size of a unit: 0 for SMALL, 1 for MID and 2 for BIG
+    protected int unitSize(int unit) {
+        return unitSizes[unit];
+    }
+
+    /// True if the unit is part of a stack
+    protected boolean isStacked(int unit) {
+        return unitStacked[unit];
+    }
+
+    /// Records a unit; sizes are 0 for SMALL, 1 for MID and 2 for BIG
+    private void addUnit(int cell, SnowballType type, boolean stacked) {
+        if (units == unitCells.length) {
+            unitCells = Arrays.copyOf(unitCells, units * 2);
+            unitSizes = Arrays.copyOf(unitSizes, units * 2);
+            unitStacked = Arrays.copyOf(unitStacked, units * 2);
+            unitPushes = Arrays.copyOf(unitPushes, units * 2);
+        }
+        unitCells[units] = cell;
+        unitSizes[units] = type.ordinal();
+        unitStacked[units] = stacked;
+        units++;
+    }
+}
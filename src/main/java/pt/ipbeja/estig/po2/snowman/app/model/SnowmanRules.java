@@ -0,0 +1,245 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * SnowmanRules is the headless simulation kernel of the game. It applies the rules
+ * (walking, pushing, growing over snow, stacking, unstacking and completing a snowman)
+ * directly to a SnowmanState, without listeners, views or file I/O, so solvers,
+ * replayers and bots can call it at full speed.
+ * <p>
+ * Every operation returns a set of result flags describing what happened; BLOCKED (0)
+ * means the state was not changed. BoardModel uses these flags to fire its events.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class SnowmanRules {
+    /// Nothing happened, the state is unchanged
+    public static final int BLOCKED = 0;
+    /// The monster moved to the next cell
+    public static final int MOVED = 1;
+    /// A snowball was pushed one cell (possibly onto another one)
+    public static final int PUSHED = 2;
+    /// A pushed snowball was stacked on another one
+    public static final int STACKED = 4;
+    /// A stack was split; the monster did not move
+    public static final int UNSTACKED = 8;
+    /// A complete snowman was formed
+    public static final int COMPLETED = 16;
+
+    private SnowmanRules() {
+    }
+
+    /**
+     * Moves the monster one cell in the given direction, following the game rules:
+     * 1. The target cell must be inside the board and not a BLOCK.
+     * 2. If it holds a stack, the stack is split instead and the monster stays.
+     * 3. If it holds a single snowball, the snowball must be pushed for the monster to move.
+     * 4. After moving, a snowman is completed if a BIG_MID stands in front of the monster
+     * with a SMALL directly above it.
+     *
+     * @param state     the state to update
+     * @param direction the direction to move
+     * @return the result flags, BLOCKED if nothing changed
+     */
+    public static int step(SnowmanState state, Direction direction) {
+        int cols = state.cols();
+        int newRow = state.monsterCell() / cols + direction.getRowDelta();
+        int newCol = state.monsterCell() % cols + direction.getColDelta();
+        if (!state.passable(newRow, newCol)) {
+            return BLOCKED;
+        }
+
+        int target = state.cell(newRow, newCol);
+        int result = MOVED;
+        SnowballType snowball = state.ball(target);
+        if (snowball != null) {
+            if (isStack(snowball)) {
+                return unstack(state, target, direction) ? UNSTACKED : BLOCKED;
+            }
+            int pushed = push(state, target, direction);
+            if (pushed == BLOCKED) {
+                return BLOCKED;
+            }
+            result |= pushed;
+        }
+
+        state.setMonster(target);
+
+        // A snowman can also be completed one cell further in the same direction
+        return result | completeSnowman(state, newRow + direction.getRowDelta(), newCol + direction.getColDelta());
+    }
+
+    /**
+     * Pushes the snowball on the given cell one cell in the given direction. A COMPLETE
+     * snowman never moves; a snowball pushed onto another one stacks if the types allow it;
+     * a snowball pushed onto snow consumes it and grows.
+     *
+     * @param state     the state to update
+     * @param cell      the cell of the snowball to push
+     * @param direction the direction of the push
+     * @return PUSHED, possibly with STACKED and COMPLETED, or BLOCKED
+     */
+    public static int push(SnowmanState state, int cell, Direction direction) {
+        SnowballType type = state.ball(cell);
+        if (type == null || type == SnowballType.COMPLETE) {
+            return BLOCKED;
+        }
+
+        int cols = state.cols();
+        int newRow = cell / cols + direction.getRowDelta();
+        int newCol = cell % cols + direction.getColDelta();
+        if (!state.passable(newRow, newCol)) {
+            return BLOCKED;
+        }
+
+        int target = state.cell(newRow, newCol);
+        if (state.ball(target) != null) {
+            int stacked = stack(state, cell, target);
+            return stacked == BLOCKED ? BLOCKED : PUSHED | stacked;
+        }
+
+        // Rolling over snow consumes it and grows the snowball
+        if (state.terrain(target) == PositionContent.SNOW) {
+            state.setTerrain(target, PositionContent.NO_SNOW);
+            state.setBall(cell, grown(type));
+        }
+        state.moveBall(cell, target);
+        return PUSHED;
+    }
+
+    /**
+     * Stacks the snowball on one cell on top of the snowball on another cell.
+     * The top snowball leaves the board and the bottom one becomes the stack.
+     *
+     * @param state  the state to update
+     * @param top    the cell of the snowball placed on top
+     * @param bottom the cell of the snowball that becomes the base
+     * @return STACKED, possibly with COMPLETED, or BLOCKED if the types cannot be stacked
+     */
+    public static int stack(SnowmanState state, int top, int bottom) {
+        SnowballType stacked = stackedType(state.ball(top), state.ball(bottom));
+        if (stacked == null) {
+            return BLOCKED;
+        }
+        state.setBall(top, null);
+        state.setBall(bottom, stacked);
+        if (stacked == SnowballType.COMPLETE) {
+            state.setTerrain(bottom, PositionContent.SNOWMAN);
+            return STACKED | COMPLETED;
+        }
+        return STACKED;
+    }
+
+    /**
+     * Splits the stack on the given cell: the bottom part stays and the top part is
+     * placed in the next cell in the given direction, which must be passable and empty.
+     *
+     * @param state     the state to update
+     * @param cell      the cell of the stack
+     * @param direction where the top part goes
+     * @return true if the stack was split
+     */
+    public static boolean unstack(SnowmanState state, int cell, Direction direction) {
+        SnowballType type = state.ball(cell);
+        SnowballType bottomType = bottomOf(type);
+        SnowballType topType = topOf(type);
+        int cols = state.cols();
+        int topRow = cell / cols + direction.getRowDelta();
+        int topCol = cell % cols + direction.getColDelta();
+        if (bottomType == null || topType == null || !state.passable(topRow, topCol)
+                || state.ball(state.cell(topRow, topCol)) != null) {
+            return false;
+        }
+        state.setBall(state.cell(topRow, topCol), topType);
+        state.setBall(cell, bottomType);
+        return true;
+    }
+
+    /**
+     * Completes a snowman if there is a BIG_MID at (row, col) and a SMALL directly above it.
+     *
+     * @param state the state to update
+     * @param row   the row of the potential base
+     * @param col   the column of the potential base
+     * @return COMPLETED if a snowman was formed, BLOCKED otherwise
+     */
+    public static int completeSnowman(SnowmanState state, int row, int col) {
+        if (!state.inside(row, col) || !state.inside(row - 1, col)) {
+            return BLOCKED;
+        }
+        int base = state.cell(row, col);
+        int top = state.cell(row - 1, col);
+        if (state.ball(base) != SnowballType.BIG_MID || state.ball(top) != SnowballType.SMALL) {
+            return BLOCKED;
+        }
+        state.setBall(top, null);
+        state.setBall(base, SnowballType.COMPLETE);
+        state.setTerrain(base, PositionContent.SNOWMAN);
+        return COMPLETED;
+    }
+
+    /**
+     * @return true if the state holds a complete snowman
+     */
+    public static boolean isSolved(SnowmanState state) {
+        for (int cell = 0; cell < state.cells(); cell++) {
+            if (state.ball(cell) == SnowballType.COMPLETE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /// Type of a snowball after rolling over snow: SMALL → MID → BIG, others unchanged
+    public static SnowballType grown(SnowballType type) {
+        return switch (type) {
+            case SMALL -> SnowballType.MID;
+            case MID -> SnowballType.BIG;
+            default -> type;
+        };
+    }
+
+    /**
+     * Returns the stack formed by placing one snowball on another:
+     * SMALL on MID → MID_SMALL, SMALL on BIG → BIG_SMALL, MID on BIG → BIG_MID and
+     * SMALL on BIG_MID → COMPLETE.
+     *
+     * @param top    type of the snowball placed on top
+     * @param bottom type of the snowball below
+     * @return the resulting type, or null if they cannot be stacked
+     */
+    public static SnowballType stackedType(SnowballType top, SnowballType bottom) {
+        if (top == SnowballType.SMALL) {
+            return switch (bottom) {
+                case MID -> SnowballType.MID_SMALL;
+                case BIG -> SnowballType.BIG_SMALL;
+                case BIG_MID -> SnowballType.COMPLETE;
+                default -> null;
+            };
+        }
+        return top == SnowballType.MID && bottom == SnowballType.BIG ? SnowballType.BIG_MID : null;
+    }
+
+    /// True for the partial stacks MID_SMALL, BIG_SMALL and BIG_MID
+    public static boolean isStack(SnowballType type) {
+        return type == SnowballType.MID_SMALL || type == SnowballType.BIG_SMALL || type == SnowballType.BIG_MID;
+    }
+
+    /// Bottom part of a stack: MID for MID_SMALL, BIG for BIG_MID and BIG_SMALL, null otherwise
+    public static SnowballType bottomOf(SnowballType type) {
+        return switch (type) {
+            case MID_SMALL -> SnowballType.MID;
+            case BIG_MID, BIG_SMALL -> SnowballType.BIG;
+            default -> null;
+        };
+    }
+
+    /// Top part of a stack: SMALL for MID_SMALL and BIG_SMALL, MID for BIG_MID, null otherwise
+    public static SnowballType topOf(SnowballType type) {
+        return switch (type) {
+            case MID_SMALL, BIG_SMALL -> SnowballType.SMALL;
+            case BIG_MID -> SnowballType.MID;
+            default -> null;
+        };
+    }
+}
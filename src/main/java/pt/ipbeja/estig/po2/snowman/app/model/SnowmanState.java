@@ -0,0 +1,349 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SnowmanState is the compact, listener-free representation of a game position used by
+ * the simulation kernel (SnowmanRules). It holds only primitive arrays:
+ * - the terrain of every cell, as PositionContent ordinals
+ * - the snowball on every cell, as SnowballType ordinal + 1 (0 means no snowball)
+ * - the cell of the monster
+ * <p>
+ * Cells use row-major indexing (row * cols + col). The state keeps the same incremental
+ * Zobrist hash as BoardModel, and can optionally record every change into a StateDelta
+ * journal, which is how BoardModel builds its undo history on top of the kernel.
+ * <p>
+ * A state is cheap to copy, so solvers and bots can explore moves on their own copies
+ * without touching the BoardModel shown to the player.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class SnowmanState {
+    private static final PositionContent[] CONTENTS = PositionContent.values();
+    private static final SnowballType[] TYPES = SnowballType.values();
+
+    private final int rows;
+    private final int cols;
+    private final byte[] terrain;
+    private final byte[] balls;
+    private int monsterCell;
+
+    private final Zobrist zobrist;
+    private long hash;
+
+    /**
+     * Journal receiving every change made through the public mutators, or null
+     */
+    private StateDelta journal;
+
+    /**
+     * Creates an empty state: every cell without snow, no snowballs and the monster in cell 0.
+     *
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     */
+    public SnowmanState(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.terrain = new byte[rows * cols];
+        this.balls = new byte[rows * cols];
+        this.zobrist = Zobrist.forCells(rows * cols);
+        rehash();
+    }
+
+    /// Copy constructor, the copy does not share the journal
+    private SnowmanState(SnowmanState other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.terrain = other.terrain.clone();
+        this.balls = other.balls.clone();
+        this.monsterCell = other.monsterCell;
+        this.zobrist = other.zobrist;
+        this.hash = other.hash;
+    }
+
+    /**
+     * Builds a state from the same data BoardModel is created with.
+     *
+     * @param content   2D matrix of PositionContent representing the board layout
+     * @param monster   the monster, only its position is used
+     * @param snowballs the snowballs, only their positions and types are used
+     * @return a new state holding that position
+     */
+    public static SnowmanState of(List<List<PositionContent>> content, Monster monster, List<Snowball> snowballs) {
+        int rows = content.size();
+        int cols = content.isEmpty() ? 0 : content.get(0).size();
+        SnowmanState state = new SnowmanState(rows, cols);
+        for (int row = 0; row < rows; row++) {
+            List<PositionContent> line = content.get(row);
+            for (int col = 0; col < cols; col++) {
+                state.terrain[state.cell(row, col)] = (byte) line.get(col).ordinal();
+            }
+        }
+        for (Snowball snowball : snowballs) {
+            state.balls[state.cell(snowball.getRow(), snowball.getCol())] = (byte) (snowball.getType().ordinal() + 1);
+        }
+        if (monster != null) {
+            state.monsterCell = state.cell(monster.getRow(), monster.getCol());
+        }
+        state.rehash();
+        return state;
+    }
+
+    /**
+     * Builds the state of the start of a parsed map.
+     *
+     * @param map the map
+     * @return a new state holding the map's terrain, SMALL snowballs and monster
+     */
+    public static SnowmanState of(MapTemplate map) {
+        SnowmanState state = new SnowmanState(map.rows(), map.cols());
+        state.reset(map);
+        return state;
+    }
+
+    /**
+     * Puts this state back to the start of a map of the same size, reusing its arrays.
+     * Nothing is recorded in the journal.
+     *
+     * @param map the map, with as many rows and columns as this state
+     */
+    void reset(MapTemplate map) {
+        System.arraycopy(map.terrain(), 0, terrain, 0, terrain.length);
+        Arrays.fill(balls, (byte) 0);
+        for (int i = 0; i < map.snowballCount(); i++) {
+            balls[map.snowballCell(i)] = (byte) (SnowballType.SMALL.ordinal() + 1);
+        }
+        monsterCell = Math.max(map.monsterCell(), 0);
+        rehash();
+    }
+
+    /**
+     * @return an independent copy of this state, without a journal
+     */
+    public SnowmanState copy() {
+        return new SnowmanState(this);
+    }
+
+    /// Number of rows of the board
+    public int rows() {
+        return rows;
+    }
+
+    /// Number of columns of the board
+    public int cols() {
+        return cols;
+    }
+
+    /// Number of cells of the board
+    public int cells() {
+        return terrain.length;
+    }
+
+    /// Row-major index of (row, col); callers are responsible for bounds checking
+    public int cell(int row, int col) {
+        return row * cols + col;
+    }
+
+    /// True if (row, col) lies inside the board
+    public boolean inside(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    /// True if (row, col) is inside the board and not a BLOCK
+    public boolean passable(int row, int col) {
+        return inside(row, col) && terrain[cell(row, col)] != PositionContent.BLOCK.ordinal();
+    }
+
+    /// Content of the given cell
+    public PositionContent terrain(int cell) {
+        return CONTENTS[terrain[cell]];
+    }
+
+    /// Type of the snowball on the given cell, or null if there is none
+    public SnowballType ball(int cell) {
+        int code = balls[cell];
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    /// Cell of the monster
+    public int monsterCell() {
+        return monsterCell;
+    }
+
+    /// Incrementally maintained Zobrist hash of this state
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Changes the content of a cell.
+     *
+     * @param cell    row-major cell index
+     * @param content the new content
+     */
+    public void setTerrain(int cell, PositionContent content) {
+        int previous = terrain[cell];
+        if (previous != content.ordinal()) {
+            putTerrain(cell, content.ordinal());
+            record(StateDelta.TERRAIN, cell, previous, content.ordinal());
+        }
+    }
+
+    /**
+     * Places, replaces or removes the snowball on a cell.
+     *
+     * @param cell row-major cell index
+     * @param type the new snowball type, or null to remove the snowball
+     */
+    public void setBall(int cell, SnowballType type) {
+        int previous = balls[cell] - 1;
+        int next = type == null ? -1 : type.ordinal();
+        if (previous == next) {
+            return;
+        }
+        putBall(cell, next);
+        if (previous < 0) {
+            record(StateDelta.SNOWBALL_ADDED, cell, next, 0);
+        } else if (next < 0) {
+            record(StateDelta.SNOWBALL_REMOVED, cell, previous, 0);
+        } else {
+            record(StateDelta.SNOWBALL_TYPE, cell, previous, next);
+        }
+    }
+
+    /**
+     * Moves the snowball on one cell to another, empty, cell.
+     *
+     * @param from cell of the snowball
+     * @param to   destination cell
+     */
+    public void moveBall(int from, int to) {
+        int type = balls[from] - 1;
+        putBall(from, -1);
+        putBall(to, type);
+        record(StateDelta.SNOWBALL_MOVED, from, to, 0);
+    }
+
+    /**
+     * Moves the monster to the given cell.
+     *
+     * @param cell destination cell
+     */
+    public void setMonster(int cell) {
+        int previous = monsterCell;
+        putMonster(cell);
+        record(StateDelta.MONSTER, previous, cell, 0);
+    }
+
+    /**
+     * Sets the journal that receives every change made through the mutators.
+     *
+     * @param journal the delta to append to, or null to stop recording
+     */
+    void setJournal(StateDelta journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applies one change recorded in a delta, either as it happened (forward) or its
+     * inverse. The change is not recorded in the journal.
+     *
+     * @param delta   the delta holding the change
+     * @param index   the position of the change inside the delta
+     * @param forward true to redo the change, false to undo it
+     */
+    void apply(StateDelta delta, int index, boolean forward) {
+        int a = delta.a(index);
+        int b = delta.b(index);
+        int c = delta.c(index);
+
+        switch (delta.kind(index)) {
+            case StateDelta.TERRAIN -> putTerrain(a, forward ? c : b);
+            case StateDelta.MONSTER -> putMonster(forward ? b : a);
+            case StateDelta.SNOWBALL_MOVED -> {
+                int from = forward ? a : b;
+                int to = forward ? b : a;
+                int type = balls[from] - 1;
+                putBall(from, -1);
+                putBall(to, type);
+            }
+            case StateDelta.SNOWBALL_ADDED -> putBall(a, forward ? b : -1);
+            case StateDelta.SNOWBALL_REMOVED -> putBall(a, forward ? -1 : b);
+            case StateDelta.SNOWBALL_TYPE -> putBall(a, forward ? c : b);
+        }
+    }
+
+    /**
+     * Reverts every change recorded in a delta, from the last one to the first,
+     * without recording anything in the journal.
+     *
+     * @param delta the changes to revert
+     */
+    void revert(StateDelta delta) {
+        for (int i = delta.size() - 1; i >= 0; i--) {
+            apply(delta, i, false);
+        }
+    }
+
+    /// Stores a terrain ordinal, keeping the hash up to date
+    private void putTerrain(int cell, int content) {
+        hash ^= zobrist.terrain(cell, terrain[cell]) ^ zobrist.terrain(cell, content);
+        terrain[cell] = (byte) content;
+    }
+
+    /// Stores a snowball type ordinal (-1 for none), keeping the hash up to date
+    private void putBall(int cell, int type) {
+        int previous = balls[cell] - 1;
+        if (previous >= 0) {
+            hash ^= zobrist.snowball(cell, previous);
+        }
+        if (type >= 0) {
+            hash ^= zobrist.snowball(cell, type);
+        }
+        balls[cell] = (byte) (type + 1);
+    }
+
+    /// Moves the monster, keeping the hash up to date
+    private void putMonster(int cell) {
+        hash ^= zobrist.monster(monsterCell) ^ zobrist.monster(cell);
+        monsterCell = cell;
+    }
+
+    /// Appends a change to the journal, if any
+    private void record(int kind, int a, int b, int c) {
+        if (journal != null) {
+            journal.record(kind, a, b, c);
+        }
+    }
+
+    /// Recomputes the hash from scratch
+    private void rehash() {
+        long h = terrain.length > 0 ? zobrist.monster(monsterCell) : 0;
+        for (int cell = 0; cell < terrain.length; cell++) {
+            h ^= zobrist.terrain(cell, terrain[cell]);
+            if (balls[cell] != 0) {
+                h ^= zobrist.snowball(cell, balls[cell] - 1);
+            }
+        }
+        hash = h;
+    }
+
+    /**
+     * Two states are equal when they have the same size, terrain, snowballs and monster cell.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SnowmanState other)) return false;
+        return rows == other.rows && cols == other.cols && monsterCell == other.monsterCell
+                && Arrays.equals(terrain, other.terrain) && Arrays.equals(balls, other.balls);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+}
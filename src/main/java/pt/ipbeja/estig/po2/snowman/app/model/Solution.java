@@ -0,0 +1,96 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.List;
+
+/**
+ * Solution is the result of a Solver: whether the map could be solved, the sequence
+ * of directions that builds the snowman, and how much work the search did.
+ * <p>
+ * The move count is the number of key presses, including the ones that only split a
+ * stack. The monster move count leaves those out, which is what a Game counts and what
+ * the leaderboard Scores are compared against.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class Solution {
+
+    /**
+     * Outcome of a search
+     */
+    public enum Status {
+        /// A sequence of moves building the snowman was found
+        SOLVED,
+        /// Every reachable state was explored and none holds a snowman
+        UNSOLVABLE,
+        /// The search stopped at its state or time limit; it may carry a solution not proven the shortest
+        LIMIT_REACHED
+    }
+
+    private final Status status;
+    private final List<Direction> moves;
+    private final int monsterMoves;
+    private final long statesExplored;
+    private final long nodesExpanded;
+    private final long elapsedNanos;
+
+    Solution(Status status, List<Direction> moves, int monsterMoves, long statesExplored, long nodesExpanded,
+             long elapsedNanos) {
+        this.status = status;
+        this.moves = moves == null ? List.of() : List.copyOf(moves);
+        this.monsterMoves = monsterMoves;
+        this.statesExplored = statesExplored;
+        this.nodesExpanded = nodesExpanded;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /// True if a sequence of moves building the snowman was found
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /// True if moves building the snowman are known, proven the shortest or not
+    public boolean hasMoves() {
+        return status == Status.SOLVED || !moves.isEmpty();
+    }
+
+    /// Directions to press, in order, from the start state; empty if no solution was found
+    public List<Direction> getMoves() {
+        return moves;
+    }
+
+    /// Number of key presses of the solution
+    public int getMoveCount() {
+        return moves.size();
+    }
+
+    /// Number of presses that actually moved the monster, as counted by a Game
+    public int getMonsterMoves() {
+        return monsterMoves;
+    }
+
+    /// Number of distinct states the search stored or expanded
+    public long getStatesExplored() {
+        return statesExplored;
+    }
+
+    /// Number of states whose moves were generated
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /// Wall time of the search
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - %d moves (%d monster moves) - %d states - %d expanded - %d ms",
+                status, moves.size(), monsterMoves, statesExplored, nodesExpanded, elapsedNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,182 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Solver is the base class of the searches that find a sequence of moves building the
+ * COMPLETE snowman on a map. Solvers work on the headless kernel (SnowmanRules applied
+ * to a SnowmanState), so they follow exactly the rules of the game and never touch the
+ * BoardModel they are given.
+ * <p>
+ * Every state-changing key press costs one move, including a press that only splits a
+ * stack. Searches stop with LIMIT_REACHED once they have stored maxStates states, once
+ * they have run for longer than the time limit, or once cancel is called from another
+ * thread.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public abstract class Solver {
+    /// Default limit on the number of states a search may store
+    public static final int DEFAULT_MAX_STATES = 20_000_000;
+
+    /// Directions in the order solvers try them
+    protected static final Direction[] DIRECTIONS = Direction.values();
+
+    protected int maxStates = DEFAULT_MAX_STATES;
+    protected long timeLimitNanos = Long.MAX_VALUE;
+    private volatile boolean cancelled;
+    protected boolean pruneDeadlocks;
+    /// The clock is read when the nodes expanded, masked with this, are 0
+    protected int clockMask = 0xFF;
+
+    /**
+     * Sets the maximum number of states a search may store before giving up.
+     *
+     * @param maxStates the limit (at least 1)
+     */
+    public void setMaxStates(int maxStates) {
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("maxStates must be at least 1: " + maxStates);
+        }
+        this.maxStates = maxStates;
+    }
+
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    /**
+     * Sets the time after which a search gives up; there is no limit by default.
+     *
+     * @param millis the limit in milliseconds (at least 1)
+     */
+    public void setTimeLimit(long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("time limit must be at least 1 ms: " + millis);
+        }
+        this.timeLimitNanos = millis * 1_000_000;
+    }
+
+    /// Time limit in milliseconds, Long.MAX_VALUE / 1000000 when there is none
+    public long getTimeLimit() {
+        return timeLimitNanos / 1_000_000;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible; it then returns LIMIT_REACHED.
+     * A cancelled solver stays cancelled, and gives up on every later search too.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Enables skipping the states DeadlockAnalyzer proves unsolvable. Pruning never
+     * changes the solution found, only how many states are stored to find it.
+     *
+     * @param pruneDeadlocks true to prune deadlocked states
+     */
+    public void setDeadlockPruning(boolean pruneDeadlocks) {
+        this.pruneDeadlocks = pruneDeadlocks;
+    }
+
+    public boolean isDeadlockPruning() {
+        return pruneDeadlocks;
+    }
+
+    /**
+     * Solves the current position of a board, as loaded by MapReader.
+     *
+     * @param board the board to solve; it is not modified
+     * @return the solution found
+     */
+    public Solution solve(BoardModel board) {
+        return solve(board.toState());
+    }
+
+    /**
+     * Solves the given state; the state is not modified.
+     *
+     * @param start the state to solve
+     * @return the solution found
+     */
+    public abstract Solution solve(SnowmanState start);
+
+    /**
+     * Tells whether a search should stop. The clock is only read once every clockMask + 1
+     * nodes, 256 by default.
+     *
+     * @param states     number of states stored so far
+     * @param expanded   number of states expanded so far
+     * @param startNanos when the search started
+     * @return true if maxStates or the time limit was reached, or the search was cancelled
+     */
+    protected boolean limitReached(long states, long expanded, long startNanos) {
+        return cancelled || states >= maxStates
+                || (expanded & clockMask) == 0 && System.nanoTime() - startNanos >= timeLimitNanos;
+    }
+
+    /**
+     * Builds a SOLVED solution, counting the presses that move the monster by replaying
+     * the moves on a copy of the start state.
+     */
+    protected static Solution solved(SnowmanState start, List<Direction> moves, long states, long expanded,
+                                     long startNanos) {
+        return withMoves(Solution.Status.SOLVED, start, moves, states, expanded, startNanos);
+    }
+
+    /**
+     * Builds a LIMIT_REACHED solution carrying the moves of a solution found before the
+     * search stopped, which is not proven to be the shortest.
+     */
+    protected static Solution stoppedWith(SnowmanState start, List<Direction> moves, long states, long expanded,
+                                          long startNanos) {
+        return withMoves(Solution.Status.LIMIT_REACHED, start, moves, states, expanded, startNanos);
+    }
+
+    /// Builds a solution with moves, counting the presses that move the monster
+    private static Solution withMoves(Solution.Status status, SnowmanState start, List<Direction> moves,
+                                      long states, long expanded, long startNanos) {
+        SnowmanState replay = start.copy();
+        int monsterMoves = 0;
+        for (Direction direction : moves) {
+            if ((SnowmanRules.step(replay, direction) & SnowmanRules.MOVED) != 0) {
+                monsterMoves++;
+            }
+        }
+        return new Solution(status, moves, monsterMoves, states, expanded, System.nanoTime() - startNanos);
+    }
+
+    /// Builds an UNSOLVABLE or LIMIT_REACHED solution
+    protected static Solution failed(Solution.Status status, long states, long expanded, long startNanos) {
+        return new Solution(status, null, 0, states, expanded, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Rebuilds the moves leading to a state of a StateTable by following the parents,
+     * then appends the final move.
+     *
+     * @param table the table of visited states
+     * @param id    the id of the state the last move was made from
+     * @param last  the last move, or null
+     * @return the moves from the start state, in order
+     */
+    static List<Direction> path(StateTable table, int id, Direction last) {
+        List<Direction> moves = new ArrayList<>();
+        if (last != null) {
+            moves.add(last);
+        }
+        for (int node = id; table.parent(node) >= 0; node = table.parent(node)) {
+            moves.add(DIRECTIONS[table.move(node)]);
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+}
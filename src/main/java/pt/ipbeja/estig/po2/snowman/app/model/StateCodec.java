@@ -0,0 +1,153 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * StateCodec packs the parts of a SnowmanState that can change during a game into a
+ * short, canonical key of longs, used by the solvers to store visited states compactly.
+ * <p>
+ * Blocks never change, and snow can only disappear from the cells that had snow at the
+ * start, so a key holds:
+ * - the monster cell
+ * - one bit per cell that had snow at the start (1 = still has snow)
+ * - every snowball as (cell, type), in increasing cell order, padded to the maximum
+ * number of snowballs the map can ever have
+ * <p>
+ * Two states of the same map are equal exactly when their keys are equal. A SNOWMAN
+ * terrain cell is not encoded: a state holding a complete snowman is a goal and is
+ * never stored.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+final class StateCodec {
+    private static final SnowballType[] TYPES = SnowballType.values();
+
+    /// Bits of the type field; the all-ones value marks an unused snowball slot
+    private static final int TYPE_BITS = 3;
+    private static final int NO_BALL = (1 << TYPE_BITS) - 1;
+
+    private final int cells;
+    private final int cellBits;
+    private final int[] snowCells;
+    private final int maxBalls;
+    private final int words;
+
+    /**
+     * Creates the codec for the map of the given start state.
+     *
+     * @param start the initial state of the map
+     */
+    StateCodec(SnowmanState start) {
+        this.cells = start.cells();
+        this.cellBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(cells - 1));
+
+        int snow = 0;
+        int balls = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (start.terrain(cell) == PositionContent.SNOW) snow++;
+            SnowballType type = start.ball(cell);
+            if (type != null) balls += units(type);
+        }
+        this.snowCells = new int[snow];
+        for (int cell = 0, i = 0; cell < cells; cell++) {
+            if (start.terrain(cell) == PositionContent.SNOW) snowCells[i++] = cell;
+        }
+        this.maxBalls = balls;
+
+        int bits = cellBits + snow + maxBalls * (cellBits + TYPE_BITS);
+        this.words = Math.max(1, (bits + 63) >>> 6);
+    }
+
+    /// Number of single snowballs a snowball of the given type is made of
+    private static int units(SnowballType type) {
+        return switch (type) {
+            case SMALL, MID, BIG -> 1;
+            case MID_SMALL, BIG_SMALL, BIG_MID -> 2;
+            case COMPLETE -> 3;
+        };
+    }
+
+    /// Number of longs in a key
+    int words() {
+        return words;
+    }
+
+    /**
+     * Writes the key of a state of this map.
+     *
+     * @param state  the state to encode
+     * @param out    the array receiving the key
+     * @param offset index of the first long of the key
+     */
+    void encode(SnowmanState state, long[] out, int offset) {
+        Arrays.fill(out, offset, offset + words, 0L);
+        int pos = write(out, offset, 0, cellBits, state.monsterCell());
+        for (int snowCell : snowCells) {
+            pos = write(out, offset, pos, 1, state.terrain(snowCell) == PositionContent.SNOW ? 1 : 0);
+        }
+        int written = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            SnowballType type = state.ball(cell);
+            if (type != null) {
+                pos = write(out, offset, pos, cellBits, cell);
+                pos = write(out, offset, pos, TYPE_BITS, type.ordinal());
+                written++;
+            }
+        }
+        for (; written < maxBalls; written++) {
+            pos = write(out, offset, pos, cellBits, 0);
+            pos = write(out, offset, pos, TYPE_BITS, NO_BALL);
+        }
+    }
+
+    /**
+     * Sets a state of this map (for instance a copy of the start state) to the state
+     * held by a key. The state's journal should be detached while decoding.
+     *
+     * @param in     the array holding the key
+     * @param offset index of the first long of the key
+     * @param state  the state to overwrite
+     */
+    void decode(long[] in, int offset, SnowmanState state) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (state.ball(cell) != null) state.setBall(cell, null);
+        }
+        state.setMonster((int) read(in, offset, 0, cellBits));
+        int pos = cellBits;
+        for (int snowCell : snowCells) {
+            state.setTerrain(snowCell, read(in, offset, pos++, 1) == 1 ? PositionContent.SNOW : PositionContent.NO_SNOW);
+        }
+        for (int i = 0; i < maxBalls; i++) {
+            int cell = (int) read(in, offset, pos, cellBits);
+            int type = (int) read(in, offset, pos + cellBits, TYPE_BITS);
+            pos += cellBits + TYPE_BITS;
+            if (type == NO_BALL) {
+                break;
+            }
+            state.setBall(cell, TYPES[type]);
+        }
+    }
+
+    /// Writes the low bits of value at the given bit position, returning the next position
+    private static int write(long[] out, int offset, int pos, int bits, long value) {
+        int word = offset + (pos >>> 6);
+        int shift = pos & 63;
+        out[word] |= value << shift;
+        if (shift + bits > 64) {
+            out[word + 1] |= value >>> (64 - shift);
+        }
+        return pos + bits;
+    }
+
+    /// Reads a field of the given width at the given bit position
+    private static long read(long[] in, int offset, int pos, int bits) {
+        int word = offset + (pos >>> 6);
+        int shift = pos & 63;
+        long value = in[word] >>> shift;
+        if (shift + bits > 64) {
+            value |= in[word + 1] << (64 - shift);
+        }
+        return value & ((1L << bits) - 1);
+    }
+}
@@ -0,0 +1,85 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+/**
+ * StateDelta records the changes made to the board by a single move, so that the
+ * move can be undone or redone without copying the whole game state.
+ * <p>
+ * Every change is stored as four ints (kind, a, b, c) in a growable array:
+ * - TERRAIN: cell, previous content ordinal, new content ordinal
+ * - MONSTER: previous cell, new cell
+ * - SNOWBALL_MOVED: previous cell, new cell
+ * - SNOWBALL_ADDED / SNOWBALL_REMOVED: cell, snowball type ordinal
+ * - SNOWBALL_TYPE: cell, previous type ordinal, new type ordinal
+ * <p>
+ * Cells use the row-major indexing of BoardModel (row * cols + col). Undoing applies
+ * the inverse of each change from last to first; redoing replays them in order.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+class StateDelta {
+    static final int TERRAIN = 0;
+    static final int MONSTER = 1;
+    static final int SNOWBALL_MOVED = 2;
+    static final int SNOWBALL_ADDED = 3;
+    static final int SNOWBALL_REMOVED = 4;
+    static final int SNOWBALL_TYPE = 5;
+
+    /// Number of ints used to store one change
+    private static final int CHANGE_SIZE = 4;
+
+    private int[] changes = new int[4 * CHANGE_SIZE];
+    private int count;
+
+    /**
+     * Appends a change to this delta, growing the backing array when needed.
+     *
+     * @param kind one of the change kinds declared in this class
+     * @param a    first operand (always a cell)
+     * @param b    second operand
+     * @param c    third operand (unused by some kinds)
+     */
+    void record(int kind, int a, int b, int c) {
+        int offset = count * CHANGE_SIZE;
+        if (offset + CHANGE_SIZE > changes.length) {
+            int[] grown = new int[changes.length * 2];
+            System.arraycopy(changes, 0, grown, 0, offset);
+            changes = grown;
+        }
+        changes[offset] = kind;
+        changes[offset + 1] = a;
+        changes[offset + 2] = b;
+        changes[offset + 3] = c;
+        count++;
+    }
+
+    /// Number of changes recorded so far
+    int size() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /// Forgets every recorded change, keeping the backing array for reuse
+    void clear() {
+        count = 0;
+    }
+
+    int kind(int index) {
+        return changes[index * CHANGE_SIZE];
+    }
+
+    int a(int index) {
+        return changes[index * CHANGE_SIZE + 1];
+    }
+
+    int b(int index) {
+        return changes[index * CHANGE_SIZE + 2];
+    }
+
+    int c(int index) {
+        return changes[index * CHANGE_SIZE + 3];
+    }
+}
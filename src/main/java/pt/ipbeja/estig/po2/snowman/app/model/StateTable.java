@@ -0,0 +1,176 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Arrays;
+
+/**
+ * StateTable is the visited set of the solvers: an open-addressing hash set of
+ * StateCodec keys that also remembers, for every state, the state it was reached
+ * from and the direction used, so the solution can be rebuilt.
+ * <p>
+ * States get consecutive ids in insertion order. Keys live in one flat long array
+ * (state id * words), parents and moves in parallel int and byte arrays, and the hash
+ * slots hold ids, so there is no object per state: a one-long key costs about 21 bytes
+ * per state, which lets the table hold millions of states. Because ids follow insertion
+ * order, a breadth-first search can use the table itself as its queue.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+final class StateTable {
+    private final int words;
+    private long[] keys;
+    private int[] parents;
+    private byte[] moves;
+    private int size;
+
+    /// Hash slots holding state id + 1, or 0 when empty; the length is a power of two
+    private int[] slots;
+
+    /**
+     * @param words    number of longs in a key
+     * @param expected number of states expected, used to size the arrays
+     */
+    StateTable(int words, int expected) {
+        this.words = words;
+        int capacity = Math.max(16, expected);
+        this.keys = new long[capacity * words];
+        this.parents = new int[capacity];
+        this.moves = new byte[capacity];
+        this.slots = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+
+    /// Number of states stored
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a state if it is not already present.
+     *
+     * @param key    the array holding the key
+     * @param offset index of the first long of the key
+     * @param parent id of the state it was reached from, or -1
+     * @param move   ordinal of the direction used, or -1
+     * @return the id of the new state, or -1 if it was already present
+     */
+    int add(long[] key, int offset, int parent, int move) {
+        int mask = slots.length - 1;
+        int slot = hash(key, offset) & mask;
+        while (slots[slot] != 0) {
+            if (equalsKey(slots[slot] - 1, key, offset)) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        if (id == parents.length) {
+            grow();
+        }
+        System.arraycopy(key, offset, keys, id * words, words);
+        parents[id] = parent;
+        moves[id] = (byte) move;
+        slots[slot] = id + 1;
+
+        // Keep the load factor at or below one half
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the state with the given key, or -1 if it is not in the table
+     */
+    int indexOf(long[] key, int offset) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key, offset) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (equalsKey(slots[slot] - 1, key, offset)) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the table holds the given key
+     */
+    boolean contains(long[] key, int offset) {
+        return indexOf(key, offset) >= 0;
+    }
+
+    /**
+     * Changes the state a stored state is reached from, when a shorter path to it was found.
+     *
+     * @param id     the id of the state
+     * @param parent id of the new parent state
+     * @param move   ordinal of the direction used from the parent
+     */
+    void reparent(int id, int parent, int move) {
+        parents[id] = parent;
+        moves[id] = (byte) move;
+    }
+
+    /// Copies the key of a state into the given array
+    void key(int id, long[] out, int offset) {
+        System.arraycopy(keys, id * words, out, offset, words);
+    }
+
+    /// Id of the state the given one was reached from, or -1 for the start
+    int parent(int id) {
+        return parents[id];
+    }
+
+    /// Ordinal of the direction that reached the given state, or -1 for the start
+    int move(int id) {
+        return moves[id];
+    }
+
+    /// Approximate number of bytes used by the arrays of the table
+    long bytes() {
+        return (long) keys.length * 8 + (long) parents.length * 5 + (long) slots.length * 4;
+    }
+
+    private boolean equalsKey(int id, long[] key, int offset) {
+        int base = id * words;
+        for (int i = 0; i < words; i++) {
+            if (keys[base + i] != key[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        int capacity = parents.length * 2;
+        keys = Arrays.copyOf(keys, capacity * words);
+        parents = Arrays.copyOf(parents, capacity);
+        moves = Arrays.copyOf(moves, capacity);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(keys, id * words) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private int hash(long[] key, int offset) {
+        return hash(key, offset, words);
+    }
+
+    /// Mixes the words of a key into a well distributed hash
+    static int hash(long[] key, int offset, int words) {
+        long h = 0;
+        for (int i = 0; i < words; i++) {
+            h = (h ^ key[offset + i]) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,262 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * TranspositionTable remembers search states by their 64-bit Zobrist hash, in memory
+ * allocated outside the Java heap, so very large searches neither grow the heap nor
+ * give the garbage collector millions of objects to trace.
+ * <p>
+ * The table is an open-addressing array of 16-byte entries (hash, value, depth) grouped
+ * in buckets of four, one cache line each, held in direct ByteBuffers. Its size is fixed
+ * by a memory budget; once a bucket is full the ReplacementPolicy decides which entry,
+ * if any, makes room for a new state. Since only the hash is stored, two states with the
+ * same hash are taken for the same state; with 64-bit Zobrist hashes this is very rare.
+ * <p>
+ * The table counts lookup hits and misses, stores, replacements and rejected stores.
+ * It is not thread-safe.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class TranspositionTable {
+
+    /**
+     * What happens when a new state hashes to a full bucket
+     */
+    public enum ReplacementPolicy {
+        /// The new state is dropped: the table is exact until a bucket fills up
+        NEVER,
+        /// The new state replaces the entry its hash points to
+        ALWAYS,
+        /// The new state replaces the entry with the smallest depth, if its own depth is not smaller
+        DEPTH_PREFERRED
+    }
+
+    /// Value returned by get for a state that is not in the table
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    /// Bytes per entry: the hash, the value and the depth
+    public static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    /// Entries per direct buffer, keeping every buffer under the 2 GiB ByteBuffer limit
+    private static final int SEGMENT_BITS = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final ByteBuffer[] segments;
+    private final long capacity;
+    private final long bucketMask;
+    private final ReplacementPolicy policy;
+
+    private long size;
+    private long hits;
+    private long misses;
+    private long stores;
+    private long replacements;
+    private long rejections;
+
+    /**
+     * Allocates a table using at most the given number of bytes outside the heap.
+     *
+     * @param budgetBytes the memory budget, at least one bucket (64 bytes)
+     * @param policy      what to do when a bucket is full
+     */
+    public TranspositionTable(long budgetBytes, ReplacementPolicy policy) {
+        long buckets = Long.highestOneBit(budgetBytes / (ENTRY_BYTES * BUCKET_ENTRIES));
+        if (buckets < 1) {
+            throw new IllegalArgumentException("budget too small for a transposition table: " + budgetBytes);
+        }
+        this.capacity = buckets * BUCKET_ENTRIES;
+        this.bucketMask = buckets - 1;
+        this.policy = policy;
+
+        long segmentEntries = 1L << SEGMENT_BITS;
+        this.segments = new ByteBuffer[(int) ((capacity + segmentEntries - 1) / segmentEntries)];
+        for (int i = 0; i < segments.length; i++) {
+            long entries = Math.min(segmentEntries, capacity - i * segmentEntries);
+            segments[i] = ByteBuffer.allocateDirect((int) (entries * ENTRY_BYTES)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Looks a state up.
+     *
+     * @param hash the hash of the state
+     * @return the value stored with the state, or NOT_FOUND
+     */
+    public int get(long hash) {
+        long entry = find(key(hash));
+        if (entry < 0) {
+            misses++;
+            return NOT_FOUND;
+        }
+        hits++;
+        return buffer(entry).getInt(offset(entry) + 8);
+    }
+
+    /// True if the state is in the table; counts as a lookup
+    public boolean contains(long hash) {
+        return get(hash) != NOT_FOUND;
+    }
+
+    /**
+     * Stores a state, or updates it if it is already in the table.
+     *
+     * @param hash  the hash of the state
+     * @param value the value to store (anything but NOT_FOUND)
+     * @param depth the depth the state was searched at, used by DEPTH_PREFERRED
+     * @return true if the state is now in the table, false if the policy dropped it
+     */
+    public boolean put(long hash, int value, int depth) {
+        long key = key(hash);
+        long first = bucket(key);
+        long victim = -1;
+        int victimDepth = Integer.MAX_VALUE;
+        for (long entry = first; entry < first + BUCKET_ENTRIES; entry++) {
+            long stored = buffer(entry).getLong(offset(entry));
+            if (stored == key || stored == 0) {
+                if (stored == 0) {
+                    size++;
+                }
+                write(entry, key, value, depth);
+                stores++;
+                return true;
+            }
+            int storedDepth = buffer(entry).getInt(offset(entry) + 12);
+            if (storedDepth < victimDepth) {
+                victim = entry;
+                victimDepth = storedDepth;
+            }
+        }
+
+        switch (policy) {
+            case ALWAYS -> victim = first + ((key >>> 62) & (BUCKET_ENTRIES - 1));
+            case DEPTH_PREFERRED -> {
+                if (depth < victimDepth) {
+                    victim = -1;
+                }
+            }
+            case NEVER -> victim = -1;
+        }
+        if (victim < 0) {
+            rejections++;
+            return false;
+        }
+        write(victim, key, value, depth);
+        stores++;
+        replacements++;
+        return true;
+    }
+
+    /// Removes every state and resets the counters
+    public void clear() {
+        for (ByteBuffer segment : segments) {
+            for (int i = 0; i < segment.capacity(); i += 8) {
+                segment.putLong(i, 0);
+            }
+        }
+        size = 0;
+        hits = 0;
+        misses = 0;
+        stores = 0;
+        replacements = 0;
+        rejections = 0;
+    }
+
+    /// Number of states in the table
+    public long size() {
+        return size;
+    }
+
+    /// Maximum number of states the table can hold
+    public long capacity() {
+        return capacity;
+    }
+
+    /// Bytes allocated outside the heap
+    public long bytes() {
+        return capacity * ENTRY_BYTES;
+    }
+
+    public ReplacementPolicy getPolicy() {
+        return policy;
+    }
+
+    /// Lookups that found the state
+    public long getHits() {
+        return hits;
+    }
+
+    /// Lookups that did not find the state
+    public long getMisses() {
+        return misses;
+    }
+
+    /// Successful calls to put, including updates and replacements
+    public long getStores() {
+        return stores;
+    }
+
+    /// Stores that evicted another state
+    public long getReplacements() {
+        return replacements;
+    }
+
+    /// Stores dropped by the replacement policy
+    public long getRejections() {
+        return rejections;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d states (%d MiB, %s) - %d hits - %d misses - %d replaced - %d rejected",
+                size, capacity, bytes() >> 20, policy, hits, misses, replacements, rejections);
+    }
+
+    /// Index of the entry holding a key, or -1
+    private long find(long key) {
+        long first = bucket(key);
+        for (long entry = first; entry < first + BUCKET_ENTRIES; entry++) {
+            long stored = buffer(entry).getLong(offset(entry));
+            if (stored == key) {
+                return entry;
+            }
+            if (stored == 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * First entry of the bucket of a key. Zobrist hashes are XORs of random keys, so their
+     * low bits are linear in the state's features and states that differ in a few features
+     * cluster; a multiply and shift breaks that before picking the bucket.
+     */
+    private long bucket(long key) {
+        long z = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return ((z ^ (z >>> 33)) & bucketMask) * BUCKET_ENTRIES;
+    }
+
+    private void write(long entry, long key, int value, int depth) {
+        ByteBuffer buffer = buffer(entry);
+        int offset = offset(entry);
+        buffer.putLong(offset, key);
+        buffer.putInt(offset + 8, value);
+        buffer.putInt(offset + 12, depth);
+    }
+
+    private ByteBuffer buffer(long entry) {
+        return segments[(int) (entry >>> SEGMENT_BITS)];
+    }
+
+    private static int offset(long entry) {
+        return (int) (entry & SEGMENT_MASK) * ENTRY_BYTES;
+    }
+
+    /// Zero marks an empty entry, so the hash 0 is stored as 1
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+}
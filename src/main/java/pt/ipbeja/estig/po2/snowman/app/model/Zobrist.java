@@ -0,0 +1,83 @@
+package pt.ipbeja.estig.po2.snowman.app.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist holds the random 64-bit keys used to hash a game state.
+ * <p>
+ * The hash of a state is the XOR of one key per feature present on the board:
+ * the monster's cell, the content of every cell (snow, no snow, block, snowman) and
+ * the cell and type of every snowball. Because XOR is its own inverse, a move only
+ * needs to XOR out the features it removes and XOR in the ones it adds.
+ * <p>
+ * Keys are derived deterministically from the cell index, so two boards with the
+ * same number of cells share the same key tables and equal states hash equally
+ * across BoardModel instances and program runs.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public final class Zobrist {
+    private static final int CONTENT_KINDS = PositionContent.values().length;
+    private static final int SNOWBALL_KINDS = SnowballType.values().length;
+
+    /// Key tables already built, shared by every board with the same number of cells
+    private static final Map<Integer, Zobrist> CACHE = new ConcurrentHashMap<>();
+
+    private final long[] monsterKeys;
+    private final long[] terrainKeys;
+    private final long[] snowballKeys;
+
+    private Zobrist(int cells) {
+        monsterKeys = new long[cells];
+        terrainKeys = new long[cells * CONTENT_KINDS];
+        snowballKeys = new long[cells * SNOWBALL_KINDS];
+
+        long seed = 0x5EED_0F_5A0B_A11L;
+        for (int cell = 0; cell < cells; cell++) {
+            monsterKeys[cell] = mix(seed++);
+            for (int kind = 0; kind < CONTENT_KINDS; kind++) {
+                terrainKeys[cell * CONTENT_KINDS + kind] = mix(seed++);
+            }
+            for (int kind = 0; kind < SNOWBALL_KINDS; kind++) {
+                snowballKeys[cell * SNOWBALL_KINDS + kind] = mix(seed++);
+            }
+        }
+    }
+
+    /**
+     * Returns the key tables for boards with the given number of cells.
+     *
+     * @param cells rows * cols of the board
+     * @return the shared Zobrist tables
+     */
+    public static Zobrist forCells(int cells) {
+        return CACHE.computeIfAbsent(cells, Zobrist::new);
+    }
+
+    /// Key for the monster standing on the cell
+    public long monster(int cell) {
+        return monsterKeys[cell];
+    }
+
+    /// Key for the cell having the given PositionContent ordinal
+    public long terrain(int cell, int content) {
+        return terrainKeys[cell * CONTENT_KINDS + content];
+    }
+
+    /// Key for a snowball of the given SnowballType ordinal on the cell
+    public long snowball(int cell, int type) {
+        return snowballKeys[cell * SNOWBALL_KINDS + type];
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads a counter into a well distributed 64-bit value.
+     */
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,16 @@
+package pt.ipbeja.estig.po2.snowman.app.model.interfaces;
+
+import pt.ipbeja.estig.po2.snowman.app.model.SnowmanState;
+
+/**
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public interface Heuristic {
+
+    /// Estimate returned for states from which the snowman can no longer be built
+    int DEAD_END = Integer.MAX_VALUE;
+
+    /// Lower bound on the number of moves still needed to build the snowman (0 when built)
+    int estimate(SnowmanState state);
+}
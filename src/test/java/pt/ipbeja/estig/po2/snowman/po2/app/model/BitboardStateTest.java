@@ -0,0 +1,141 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BitboardState class, verifying that it converts to and from the
+ * other representations and follows the same rules as the kernel.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class BitboardStateTest {
+    private BoardModel board;
+
+    /**
+     * Sets up a 5×6 board with a block at (1,3), snow on row 0 and on (3,4),
+     * the monster at (4,0) and SMALL, MID and BIG snowballs on rows 2 and 3.
+     */
+    @BeforeEach
+    public void setUp() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 6; j++) {
+                if (i == 1 && j == 3) {
+                    row.add(PositionContent.BLOCK);
+                } else if (i == 0 || (i == 3 && j == 4)) {
+                    row.add(PositionContent.SNOW);
+                } else {
+                    row.add(PositionContent.NO_SNOW);
+                }
+            }
+            content.add(row);
+        }
+
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(2, 1, SnowballType.SMALL));
+        snowballs.add(new Snowball(2, 3, SnowballType.MID));
+        snowballs.add(new Snowball(3, 2, SnowballType.BIG));
+
+        board = new BoardModel(content, new Monster(4, 0), snowballs);
+    }
+
+    /**
+     * Converting to bitboards and back gives the same position.
+     */
+    @Test
+    @DisplayName("Convert to bitboards and back")
+    void testRoundTrip() {
+        BitboardState bitboard = BitboardState.from(board);
+
+        assertEquals(board.toState(), bitboard.toState());
+        assertEquals(board.stateHash(), bitboard.toBoardModel().stateHash());
+        assertEquals(SnowballType.MID, bitboard.ball(2 * 6 + 3));
+        assertEquals(PositionContent.BLOCK, bitboard.terrain(6 + 3));
+    }
+
+    /**
+     * A long random walk gives the same results on the bitboards as on the kernel state.
+     */
+    @Test
+    @DisplayName("Bitboard steps match the kernel")
+    void testStepsMatchKernel() {
+        Random random = new Random(7);
+        Direction[] directions = Direction.values();
+        SnowmanState state = board.toState();
+        BitboardState bitboard = BitboardState.from(state);
+
+        for (int i = 0; i < 5000; i++) {
+            Direction direction = directions[random.nextInt(directions.length)];
+            assertEquals(SnowmanRules.step(state, direction), bitboard.step(direction));
+            assertEquals(state, bitboard.toState());
+            assertReachable(state, bitboard.reachable());
+
+            // Start again once a snowman has been completed
+            if (SnowmanRules.isSolved(state)) {
+                state = board.toState();
+                bitboard = BitboardState.from(state);
+            }
+        }
+    }
+
+    /**
+     * The flood fill crosses word boundaries on boards with more than 64 cells.
+     */
+    @Test
+    @DisplayName("Reachable cells on a multi-word board")
+    void testReachableLargeBoard() {
+        SnowmanState state = new SnowmanState(10, 13);
+        for (int row = 0; row < 10; row++) {
+            state.setTerrain(state.cell(row, 6), PositionContent.BLOCK);
+        }
+        state.setTerrain(state.cell(4, 6), PositionContent.NO_SNOW);
+        state.setBall(state.cell(7, 9), SnowballType.BIG);
+        state.setMonster(state.cell(9, 0));
+
+        BitboardState bitboard = BitboardState.from(state);
+        assertReachable(state, bitboard.reachable());
+
+        // Closing the gap splits the board in two
+        state.setTerrain(state.cell(4, 6), PositionContent.BLOCK);
+        assertReachable(state, BitboardState.from(state).reachable());
+    }
+
+    /**
+     * Checks the reachable bitboard against a plain breadth-first walk of the kernel state.
+     */
+    private void assertReachable(SnowmanState state, long[] reachable) {
+        boolean[] seen = new boolean[state.cells()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        seen[state.monsterCell()] = true;
+        queue.add(state.monsterCell());
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            for (Direction direction : Direction.values()) {
+                int row = cell / state.cols() + direction.getRowDelta();
+                int col = cell % state.cols() + direction.getColDelta();
+                if (state.passable(row, col)) {
+                    int next = state.cell(row, col);
+                    if (!seen[next] && state.ball(next) == null) {
+                        seen[next] = true;
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        for (int cell = 0; cell < state.cells(); cell++) {
+            assertEquals(seen[cell], (reachable[cell >>> 6] & (1L << cell)) != 0, "cell " + cell);
+        }
+    }
+}
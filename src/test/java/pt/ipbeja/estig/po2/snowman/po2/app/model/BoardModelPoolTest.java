@@ -0,0 +1,97 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for resetting boards to a parsed map and for the pool of boards.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class BoardModelPoolTest {
+
+    /// Reads a shipped text map
+    private MapTemplate shipped(String map) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(map)) {
+            return MapTokenizer.tokenize(in, map).toTemplate();
+        }
+    }
+
+    /// Plays a few moves that push and grow snowballs
+    private static void play(BoardModel board) {
+        for (Direction direction : new Direction[]{Direction.RIGHT, Direction.RIGHT, Direction.DOWN,
+                Direction.LEFT, Direction.UP, Direction.RIGHT}) {
+            board.moveMonster(direction);
+        }
+    }
+
+    @Test
+    @DisplayName("A reset board is the same as a new one, with an empty history")
+    void testResetFrom() throws IOException {
+        MapTemplate map1 = shipped("/map1.txt");
+        MapTemplate map2 = shipped("/map2.txt");
+        BoardModel board = map1.toBoardModel();
+        assertEquals(new MapReader().loadMapFromFile("/map1.txt").toState(), board.toState());
+
+        play(board);
+        assertNotEquals(map1.toBoardModel().toState(), board.toState());
+        board.resetFrom(map1);
+        assertEquals(map1.toBoardModel().toState(), board.toState());
+        assertEquals(map1.monsterCell() % map1.cols(), board.getMonster().getCol());
+        assertFalse(board.undo());
+        for (int cell : map1.snowballCells()) {
+            Snowball snowball = board.getSnowballInPosition(cell / map1.cols(), cell % map1.cols());
+            assertNotNull(snowball);
+            assertEquals(SnowballType.SMALL, snowball.getType());
+        }
+
+        // A map of another size
+        board.resetFrom(map2);
+        assertEquals(map2.toBoardModel().toState(), board.toState());
+        play(board);
+        board.resetFrom(map1);
+        assertEquals(map1.toBoardModel().toState(), board.toState());
+
+        InputStream in = new ByteArrayInputStream("No monster\nS SB\nX S\n".getBytes(StandardCharsets.UTF_8));
+        board.resetFrom(MapTokenizer.tokenize(in, "generated").toTemplate());
+        assertNull(board.getMonster());
+        assertNotNull(board.getSnowballInPosition(0, 1));
+    }
+
+    @Test
+    @DisplayName("Released boards are detached and handed out again, up to the capacity")
+    void testPool() throws IOException {
+        MapTemplate map1 = shipped("/map1.txt");
+        BoardModelPool pool = new BoardModelPool(1);
+
+        BoardModel first = pool.acquire(map1);
+        BoardModel second = pool.acquire(map1);
+        assertNotSame(first, second);
+        first.setGame(new Game("player", map1.getName()));
+        play(first);
+        pool.release(first);
+        assertThrows(IllegalStateException.class, () -> pool.release(first));
+        pool.release(second);
+        assertEquals(1, pool.size());
+
+        BoardModel again = pool.acquire(map1);
+        assertSame(first, again);
+        assertNull(again.getGame());
+        assertEquals(map1.toBoardModel().toState(), again.toState());
+        assertEquals(0, pool.size());
+
+        assertEquals(2, pool.getCreated());
+        assertEquals(1, pool.getReused());
+        assertEquals(1, pool.getDiscarded());
+        assertThrows(IllegalArgumentException.class, () -> new BoardModelPool(0));
+    }
+}
@@ -180,6 +180,33 @@ public class BoardModelTest {
         }
     }
 
+    /**
+     * Verifies that terrain changes are stored per cell and reflected in the
+     * generated map string, and that out-of-bounds cells read as BLOCK.
+     */
+    @Test
+    @DisplayName("Set and read position content")
+    void testSetPositionContent() {
+        setUp();
+
+        assertEquals(rows, board.getRowCount());
+        assertEquals(cols, board.getColCount());
+        assertEquals(PositionContent.SNOW, board.getPositionContent(2, 3));
+
+        board.setPositionContent(2, 3, PositionContent.BLOCK);
+        board.setPositionContent(4, 4, PositionContent.SNOW);
+        assertEquals(PositionContent.BLOCK, board.getPositionContent(2, 3));
+        assertEquals(PositionContent.SNOW, board.getPositionContent(4, 4));
+        assertEquals(PositionContent.NO_SNOW, board.getPositionContent(4, 3));
+        assertEquals(PositionContent.BLOCK, board.getPositionContent(-1, 0));
+        assertEquals(PositionContent.BLOCK, board.getPositionContent(0, cols));
+
+        String[] map = board.generateMapString();
+        assertEquals(rows, map.length);
+        assertEquals("\tM\t\tX\t\tS\t\tB\t\tS\t", map[2]);
+        assertEquals("\tX\t\tX\t\tX\t\tX\t\tS\t", map[4]);
+    }
+
     /**
      * Tests that a snowball moves left when the monster moves into its cell.
      * After move, snowball at (0,1) should end up at (0,0), and monster at (0,1).
@@ -317,6 +344,224 @@ public class BoardModelTest {
         assertEquals(SnowballType.BIG_MID, bigMidBall.getType());
     }
 
+    /**
+     * Verifies that position lookups follow snowballs as they are pushed and stacked,
+     * leaving the cells they left empty.
+     */
+    @Test
+    @DisplayName("Snowball lookup follows pushes and stacks")
+    void testSnowballLookupAfterMoves() {
+        setUp();
+
+        board.moveMonster(Direction.RIGHT);
+
+        assertNull(board.getSnowballInPosition(2, 1));
+        assertEquals(SnowballType.BIG_MID, board.getSnowballInPosition(2, 2).getType());
+        assertNull(board.getSnowballInPosition(2, 3));
+        assertNull(board.getSnowballInPosition(-1, 2));
+        assertNull(board.getSnowballInPosition(2, cols));
+
+        board.moveMonster(Direction.RIGHT);
+
+        assertEquals(SnowballType.BIG, board.getSnowballInPosition(2, 2).getType());
+        assertEquals(SnowballType.MID, board.getSnowballInPosition(2, 3).getType());
+    }
+
+    /**
+     * Undo reverts a push that grew a snowball over snow (position, type and terrain),
+     * and redo applies it again.
+     */
+    @Test
+    @DisplayName("Undo and redo a snowball push")
+    void testUndoRedoPush() {
+        bigSnowballSetup();
+        Snowball snowball = board.getSnowballInPosition(2, 1);
+
+        assertTrue(board.moveMonster(Direction.RIGHT));
+        assertEquals(SnowballType.MID, board.getSnowballInPosition(2, 2).getType());
+        assertEquals(PositionContent.NO_SNOW, board.getPositionContent(2, 2));
+
+        assertTrue(board.undo());
+        assertEquals(0, board.getMonster().getCol());
+        assertNull(board.getSnowballInPosition(2, 2));
+        assertEquals(SnowballType.SMALL, board.getSnowballInPosition(2, 1).getType());
+        assertEquals(PositionContent.SNOW, board.getPositionContent(2, 2));
+        assertFalse(board.undo());
+
+        assertTrue(board.redo());
+        assertEquals(1, board.getMonster().getCol());
+        assertSame(snowball, board.getSnowballInPosition(2, 2));
+        assertEquals(SnowballType.MID, snowball.getType());
+        assertEquals(PositionContent.NO_SNOW, board.getPositionContent(2, 2));
+        assertFalse(board.redo());
+    }
+
+    /**
+     * Undoing a stack restores both snowballs, and a new move after undo
+     * discards the moves that could have been redone.
+     */
+    @Test
+    @DisplayName("Undo a stack and discard redo moves")
+    void testUndoStack() {
+        setUp();
+
+        board.moveMonster(Direction.RIGHT);
+        assertEquals(SnowballType.BIG_MID, board.getSnowballInPosition(2, 2).getType());
+
+        assertTrue(board.undo());
+        assertEquals(SnowballType.MID, board.getSnowballInPosition(2, 1).getType());
+        assertEquals(SnowballType.BIG, board.getSnowballInPosition(2, 2).getType());
+
+        assertTrue(board.moveMonster(Direction.DOWN));
+        assertFalse(board.redo());
+        assertEquals(SnowballType.MID, board.getSnowballInPosition(2, 1).getType());
+    }
+
+    /**
+     * Only the configured number of moves can be undone.
+     */
+    @Test
+    @DisplayName("History capacity limits undo")
+    void testHistoryCapacity() {
+        simpleMonsterSetup();
+        board.setHistoryCapacity(2);
+
+        board.moveMonster(Direction.RIGHT);
+        board.moveMonster(Direction.RIGHT);
+        board.moveMonster(Direction.RIGHT);
+
+        assertTrue(board.undo());
+        assertTrue(board.undo());
+        assertFalse(board.undo());
+        assertEquals(3, board.getMonster().getRow());
+        assertEquals(2, board.getMonster().getCol());
+    }
+
+    /**
+     * The history keeps working after wrapping around its capacity several times:
+     * only the newest moves can be undone and a new move drops the redoable ones.
+     */
+    @Test
+    @DisplayName("History wraps around its capacity")
+    void testHistoryWrapsAround() {
+        monster = new Monster(4, 0);
+        for (int i = 0; i < rows; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < cols; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        board = new BoardModel(content, monster, snowballs, 3);
+        assertEquals(3, board.getHistoryCapacity());
+
+        // Walk right and left along the bottom row, ending at column 2
+        for (int i = 0; i < 10; i++) {
+            board.moveMonster(i % 4 < 2 ? Direction.RIGHT : Direction.LEFT);
+        }
+        assertEquals(2, monster.getCol());
+
+        assertTrue(board.undo());
+        assertTrue(board.undo());
+        assertTrue(board.undo());
+        assertFalse(board.undo());
+        assertEquals(1, board.getMonster().getCol());
+
+        assertTrue(board.redo());
+        assertEquals(0, board.getMonster().getCol());
+
+        board.moveMonster(Direction.UP);
+        assertFalse(board.redo());
+        assertTrue(board.undo());
+        assertTrue(board.undo());
+        assertFalse(board.undo());
+        assertEquals(1, board.getMonster().getCol());
+    }
+
+    /**
+     * The incrementally maintained state hash matches the hash of a board built from
+     * scratch in the same state, and returns to earlier values on undo and redo.
+     */
+    @Test
+    @DisplayName("State hash follows moves, undo and redo")
+    void testStateHash() {
+        setUp();
+        long initial = board.stateHash();
+
+        board.moveMonster(Direction.DOWN);
+        board.moveMonster(Direction.RIGHT);
+        board.moveMonster(Direction.RIGHT);
+        board.moveMonster(Direction.UP);
+        long afterPush = board.stateHash();
+        assertNotEquals(initial, afterPush);
+        assertEquals(copyOf(board).stateHash(), afterPush);
+
+        board.moveMonster(Direction.LEFT);
+        board.moveMonster(Direction.UP);
+        board.moveMonster(Direction.RIGHT);
+        assertEquals(copyOf(board).stateHash(), board.stateHash());
+
+        board.undo();
+        board.undo();
+        board.undo();
+        assertEquals(afterPush, board.stateHash());
+        board.redo();
+        assertEquals(copyOf(board).stateHash(), board.stateHash());
+        while (board.undo()) {
+            // back to the start
+        }
+        assertEquals(initial, board.stateHash());
+    }
+
+    /**
+     * The headless kernel applied to a copy of the state gives the same result as the
+     * board, including pushes over snow, stacking and unstacking.
+     */
+    @Test
+    @DisplayName("Kernel steps match the board moves")
+    void testKernelMatchesBoard() {
+        setUp();
+        SnowmanState state = board.toState();
+        // Stack MID on BIG, unstack it onto the snow, then push the BIG up
+        Direction[] moves = {Direction.RIGHT, Direction.RIGHT, Direction.DOWN, Direction.RIGHT,
+                Direction.UP, Direction.UP};
+
+        for (Direction direction : moves) {
+            int result = SnowmanRules.step(state, direction);
+            boolean moved = board.moveMonster(direction);
+            assertEquals(moved, (result & SnowmanRules.MOVED) != 0);
+            assertEquals(board.toState(), state);
+            assertEquals(board.stateHash(), state.hash());
+        }
+        assertEquals(SnowballType.MID, state.ball(state.cell(2, 3)));
+        assertEquals(SnowballType.BIG, state.ball(state.cell(0, 2)));
+
+        // Copies are independent of the board
+        SnowmanRules.step(state, Direction.LEFT);
+        assertNotEquals(board.toState(), state);
+    }
+
+    /**
+     * Builds a new BoardModel holding the same terrain, monster and snowballs as the given one.
+     */
+    private BoardModel copyOf(BoardModel source) {
+        List<List<PositionContent>> terrain = new ArrayList<>();
+        List<Snowball> balls = new ArrayList<>();
+        for (int i = 0; i < source.getRowCount(); i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < source.getColCount(); j++) {
+                row.add(source.getPositionContent(i, j));
+                Snowball snowball = source.getSnowballInPosition(i, j);
+                if (snowball != null) {
+                    balls.add(new Snowball(i, j, snowball.getType()));
+                }
+            }
+            terrain.add(row);
+        }
+        Monster copy = new Monster(source.getMonster().getRow(), source.getMonster().getCol());
+        return new BoardModel(terrain, copy, balls);
+    }
+
     /**
      * Tests unstacking a BIG_MID stack by pushing into it again,
      * resulting in separate MID at (2,2) and BIG at (2,3).
@@ -0,0 +1,137 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DeadlockAnalyzer: dead cells, deadlocked states, and how much it
+ * prunes from a breadth-first search of the shipped maps.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class DeadlockAnalyzerTest {
+
+    /**
+     * Creates an open board without snow.
+     */
+    private List<List<PositionContent>> openBoard(int rows, int cols) {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < cols; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        return content;
+    }
+
+    @Test
+    @DisplayName("Corners are dead for SMALL and MID but not for BIG")
+    void testDeadCorners() {
+        List<List<PositionContent>> content = openBoard(4, 4);
+        content.get(1).set(1, PositionContent.SNOW);
+        content.get(1).set(2, PositionContent.SNOW);
+        DeadlockAnalyzer analyzer = new DeadlockAnalyzer(
+                SnowmanState.of(content, new Monster(0, 0), List.of()));
+
+        assertTrue(analyzer.isFrozen(3, 3));
+        assertTrue(analyzer.isDeadCell(3, 3, SnowballType.MID));
+        assertFalse(analyzer.isDeadCell(3, 3, SnowballType.BIG));
+        // A SMALL in the top corner can still be the top of a snowman built below it
+        assertFalse(analyzer.isDeadCell(0, 3, SnowballType.SMALL));
+        assertTrue(analyzer.isDeadCell(3, 3, SnowballType.SMALL));
+        assertFalse(analyzer.isDeadCell(1, 1, SnowballType.MID));
+        assertEquals("""
+                SMALL: 2 dead cells
+                ....
+                ....
+                ....
+                #..#
+                MID: 4 dead cells
+                #..#
+                ....
+                ....
+                #..#
+                BIG: 0 dead cells
+                ....
+                ....
+                ....
+                ....
+                """, analyzer.report());
+    }
+
+    @Test
+    @DisplayName("A MID stuck in a corner deadlocks the board")
+    void testDeadlockedState() {
+        List<List<PositionContent>> content = openBoard(4, 4);
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 1, SnowballType.SMALL));
+        snowballs.add(new Snowball(1, 2, SnowballType.BIG));
+        snowballs.add(new Snowball(3, 3, SnowballType.MID));
+        BoardModel board = new BoardModel(content, new Monster(0, 0), snowballs);
+        assertTrue(DeadlockAnalyzer.of(board).isDeadlocked(board));
+
+        snowballs.set(2, new Snowball(2, 2, SnowballType.MID));
+        board = new BoardModel(content, new Monster(0, 0), snowballs);
+        assertFalse(DeadlockAnalyzer.of(board).isDeadlocked(board));
+    }
+
+    /**
+     * Explores the first states of each map breadth-first, counting the deadlocked ones,
+     * and checks that no state of an optimal solution is reported as deadlocked.
+     */
+    @Test
+    @DisplayName("Deadlock pruning on the shipped maps")
+    void testPruningOnMaps() {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            BoardModel board = new MapReader().loadMapFromFile(map);
+            SnowmanState start = board.toState();
+            DeadlockAnalyzer analyzer = new DeadlockAnalyzer(start);
+
+            Set<SnowmanState> visited = new HashSet<>();
+            Queue<SnowmanState> queue = new ArrayDeque<>();
+            visited.add(start);
+            queue.add(start);
+            int deadlocked = 0;
+            while (!queue.isEmpty() && visited.size() < 20_000) {
+                SnowmanState state = queue.poll();
+                for (Direction direction : Direction.values()) {
+                    SnowmanState next = state.copy();
+                    if (SnowmanRules.step(next, direction) != SnowmanRules.BLOCKED && visited.add(next)) {
+                        if (analyzer.isDeadlocked(next)) {
+                            deadlocked++;
+                        } else {
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+            assertTrue(deadlocked > 0 && deadlocked < visited.size());
+
+            Solution plain = new BreadthFirstSolver().solve(board);
+            BreadthFirstSolver pruning = new BreadthFirstSolver();
+            pruning.setDeadlockPruning(true);
+            Solution pruned = pruning.solve(board);
+            assertEquals(plain.getMoves(), pruned.getMoves());
+            assertTrue(pruned.getStatesExplored() < plain.getStatesExplored());
+
+            SnowmanState state = start.copy();
+            for (Direction direction : plain.getMoves()) {
+                assertFalse(analyzer.isDeadlocked(state));
+                SnowmanRules.step(state, direction);
+            }
+        }
+    }
+}
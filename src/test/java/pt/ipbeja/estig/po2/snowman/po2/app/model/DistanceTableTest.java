@@ -0,0 +1,127 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the per-map walk and push distances.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class DistanceTableTest {
+
+    /**
+     * A 3x4 board with a BLOCK in the middle of the first row:
+     * . B . .
+     * . . . .
+     * . . . .
+     */
+    private BoardModel board() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        content.get(0).set(1, PositionContent.BLOCK);
+        return new BoardModel(content, new Monster(0, 0), new ArrayList<>());
+    }
+
+    @Test
+    @DisplayName("Walk and push distances on the static terrain")
+    void testDistances() {
+        DistanceTable distances = board().getDistances();
+
+        // Walking around the BLOCK from (0,0) to (0,2)
+        assertEquals(4, distances.walk(0, 2));
+        assertEquals(0, distances.walk(5, 5));
+        assertEquals(DistanceTable.UNREACHABLE, distances.walk(0, 1));
+        assertEquals(3, distances.approach(0, 2));
+
+        // A snowball in a corner cannot move; along the bottom edge it can only slide sideways
+        assertEquals(DistanceTable.UNREACHABLE, distances.push(0, 4));
+        assertEquals(DistanceTable.UNREACHABLE, distances.push(8, 9));
+        assertEquals(2, distances.push(9, 11));
+        assertEquals(DistanceTable.UNREACHABLE, distances.push(9, 5));
+        assertEquals(1, distances.push(5, 6));
+    }
+
+    /**
+     * A 259x260 serpentine: every odd row is BLOCK except for one gap, alternately at its
+     * right and left end, so the walk between the corners is longer than a short holds.
+     */
+    @Test
+    @DisplayName("Large maps are analysed without a table of every pair of cells")
+    void testLargeMap() {
+        int rows = 259;
+        int cols = 260;
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            List<PositionContent> line = new ArrayList<>();
+            for (int col = 0; col < cols; col++) {
+                boolean gap = row % 4 == 1 ? col == cols - 1 : col == 0;
+                line.add(row % 2 == 1 && !gap ? PositionContent.BLOCK : PositionContent.NO_SNOW);
+            }
+            content.add(line);
+        }
+        DistanceTable distances = DistanceTable.of(SnowmanState.of(content, new Monster(0, 0), List.of()));
+
+        int last = rows * cols - 1;
+        int expected = rows / 2 * (cols - 1) + rows - 1;
+        assertEquals(expected, distances.walk(0, last));
+        assertTrue(expected > Short.MAX_VALUE);
+        assertEquals(expected, distances.walk(last, 0));
+        assertEquals(cols - 3, distances.push(1, cols - 2));
+        assertEquals(DistanceTable.UNREACHABLE, distances.walk(0, cols));
+    }
+
+    @Test
+    @DisplayName("A board looks its table up again when its layout changes")
+    void testLayoutChanges() {
+        BoardModel board = new MapReader().loadMapFromFile("/map1.txt");
+        DistanceTable map1 = board.getDistances();
+
+        board.startGame();
+        assertNotSame(map1, board.getDistances());
+        assertTrue(board.getDistances().matches(board.toState()));
+
+        DistanceTable open = board.getDistances();
+        assertEquals(2, open.walk(0, 2));
+        board.setPositionContent(0, 1, PositionContent.BLOCK);
+        assertNotSame(open, board.getDistances());
+        assertEquals(DistanceTable.UNREACHABLE, board.getDistances().walk(0, 1));
+        assertEquals(4, board.getDistances().walk(0, 2));
+    }
+
+    @Test
+    @DisplayName("At most CACHE_CAPACITY tables are cached")
+    void testCacheIsBounded() {
+        for (int size = 2; size < 2 + 2 * DistanceTable.CACHE_CAPACITY; size++) {
+            List<List<PositionContent>> content = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                content.add(new ArrayList<>(Collections.nCopies(size, PositionContent.SNOW)));
+            }
+            DistanceTable.of(SnowmanState.of(content, new Monster(0, 0), List.of()));
+        }
+        assertEquals(DistanceTable.CACHE_CAPACITY, DistanceTable.cacheSize());
+    }
+
+    @Test
+    @DisplayName("Tables are shared by the boards of a map")
+    void testCache() {
+        assertSame(board().getDistances(), board().getDistances());
+        BoardModel map1 = new MapReader().loadMapFromFile("/map1.txt");
+        assertNotSame(board().getDistances(), map1.getDistances());
+        assertSame(map1.getDistances(), DistanceTable.of(map1.toState()));
+    }
+}
@@ -0,0 +1,61 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the hints given by BoardModel through HintService.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class HintServiceTest {
+
+    /**
+     * Following the hints builds the snowman in the optimal number of moves, and only
+     * the first hint needs a search.
+     */
+    @Test
+    @DisplayName("Following the hints solves the map")
+    void testFollowHints() {
+        BoardModel board = new MapReader().loadMapFromFile("/map1.txt");
+        HintService hints = new HintService();
+        int moves = 0;
+        for (Direction direction = hints.hint(board.toState(), 10_000); direction != null;
+             direction = hints.hint(board.toState(), 10_000)) {
+            board.moveMonster(direction);
+            moves++;
+        }
+
+        assertTrue(SnowmanRules.isSolved(board.toState()));
+        assertEquals(18, moves);
+        assertEquals(1, hints.getMisses());
+        assertEquals(18, hints.getHits());
+    }
+
+    @Test
+    @DisplayName("The board's hint service answers for a copy of the position")
+    void testHintOnCopy() {
+        BoardModel board = new MapReader().loadMapFromFile("/map1.txt");
+        HintService hints = board.getHintService();
+        assertSame(hints, board.getHintService());
+
+        Direction direction = hints.hint(board.toState(), 10_000);
+        assertNotNull(direction);
+        assertEquals(direction, board.hint());
+        assertEquals(1, hints.getHits());
+    }
+
+    @Test
+    @DisplayName("A hint is given even when the budget is too short to solve")
+    void testHintWithinBudget() {
+        BoardModel board = new MapReader().loadMapFromFile("/map1.txt");
+        Direction direction = board.hint(1);
+
+        assertNotNull(direction);
+        assertNotEquals(SnowmanRules.BLOCKED, SnowmanRules.step(board.toState(), direction));
+    }
+}
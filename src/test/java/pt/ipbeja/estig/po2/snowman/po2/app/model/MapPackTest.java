@@ -0,0 +1,103 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for map packs.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class MapPackTest {
+
+    /// Reads a shipped text map
+    private MapTemplate shipped(String map) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(map)) {
+            return MapTokenizer.tokenize(in, map).toTemplate();
+        }
+    }
+
+    /// A small generated level, different for every index
+    private static MapTemplate generated(int index) throws IOException {
+        String text = "Level " + index + "\nM " + (index % 2 == 0 ? "S" : "B") + " SB\nS SB X\nX S SB\n";
+        InputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+        return MapTokenizer.tokenize(in, "generated").toTemplate();
+    }
+
+    @Test
+    @DisplayName("Levels are loaded by name or ordinal and iterated in order")
+    void testPack(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("levels" + MapPack.EXTENSION);
+        List<MapTemplate> written = new ArrayList<>();
+        try (MapPack.Writer writer = MapPack.create(file)) {
+            writer.add("map1", shipped("/map1.txt"));
+            writer.add("map2", shipped("/map2.txt"));
+            for (int i = 0; i < 1000; i++) {
+                writer.add("generated" + i, generated(i));
+            }
+            assertThrows(IllegalArgumentException.class, () -> writer.add("map1", shipped("/map1.txt")));
+            assertThrows(IllegalArgumentException.class, () -> writer.add("x".repeat(Short.MAX_VALUE + 1),
+                    shipped("/map1.txt")));
+            assertEquals(1002, writer.size());
+        }
+        written.add(shipped("/map1.txt"));
+        written.add(shipped("/map2.txt"));
+        for (int i = 0; i < 1000; i++) {
+            written.add(generated(i));
+        }
+
+        MapPack pack = MapPack.open(file);
+        assertEquals(1002, pack.size());
+        assertEquals(1, pack.ordinal("map2"));
+        assertEquals(-1, pack.ordinal("missing"));
+        assertEquals("generated500", pack.name(502));
+        assertEquals(written.get(777), pack.get(777));
+        assertEquals(written.get(900), pack.get("generated898"));
+        assertNull(pack.get("missing"));
+
+        int ordinal = 0;
+        for (MapTemplate map : pack) {
+            assertEquals(written.get(ordinal++), map);
+        }
+        assertEquals(1002, ordinal);
+
+        MapReader reader = new MapReader();
+        BoardModel byName = reader.loadMapFromPack(pack, "map1");
+        assertEquals("Snowy garden", reader.getMapName());
+        assertEquals(reader.loadMapFromFile("/map1.txt").toState(), byName.toState());
+        reader.loadMapFromPack(pack, 1);
+        assertEquals("Serra da Estrela", reader.getMapName());
+        assertThrows(RuntimeException.class, () -> reader.loadMapFromPack(pack, "missing"));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.loadMapFromPack(pack, 1002));
+    }
+
+    @Test
+    @DisplayName("Files that are not packs are rejected")
+    void testNotAPack(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("broken" + MapPack.EXTENSION);
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> MapPack.open(file));
+
+        try (MapPack.Writer writer = MapPack.create(file)) {
+            writer.add("map1", shipped("/map1.txt"));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 12] = 0x7F; // index offset past the end
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> MapPack.open(file));
+    }
+}
@@ -0,0 +1,169 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for reading text maps with MapTokenizer and compiled maps.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class MapReaderTest {
+
+    /// Stream over the UTF-8 bytes of a text
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /// Reads a map held in a string
+    private static BoardModel load(MapReader reader, String text) {
+        return reader.loadMap(stream(text), "test.txt");
+    }
+
+    @Test
+    @DisplayName("The tokenizer reads the shipped maps like the symbol parser")
+    void testShippedMaps() throws IOException {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            String text;
+            try (InputStream in = getClass().getResourceAsStream(map)) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            String[] lines = text.split("\\R");
+            String[][] symbols = Arrays.stream(lines, 1, lines.length)
+                    .filter(line -> !line.isBlank())
+                    .map(line -> line.trim().split("\\s+"))
+                    .toArray(String[][]::new);
+
+            MapReader reader = new MapReader();
+            BoardModel expected = reader.parseMap(symbols, lines[0]);
+            BoardModel loaded = reader.loadMapFromFile(map);
+            assertEquals(lines[0], reader.getMapName());
+            assertEquals(expected.toState(), loaded.toState());
+
+            MapTokenizer tokenizer = MapTokenizer.tokenize(stream(text), map);
+            assertEquals(MapValidator.contentHash(symbols), tokenizer.contentHash());
+        }
+    }
+
+    @Test
+    @DisplayName("Line endings, tabs, blank lines and unknown symbols")
+    void testSeparators() {
+        MapReader reader = new MapReader();
+        BoardModel board = load(reader, "Mixed\r\n\r\nM\tS  SB\r\nB X S\rX S B\n\n");
+
+        assertEquals("Mixed", reader.getMapName());
+        assertEquals(3, board.getRowCount());
+        assertEquals(3, board.getColCount());
+        assertEquals(0, board.getMonster().getRow());
+        assertEquals(0, board.getMonster().getCol());
+        assertEquals(PositionContent.SNOW, board.getPositionContent(0, 1));
+        assertEquals(PositionContent.NO_SNOW, board.getPositionContent(0, 2));
+        assertEquals(PositionContent.BLOCK, board.getPositionContent(1, 0));
+        assertEquals(PositionContent.NO_SNOW, board.getPositionContent(1, 1));
+        assertEquals(PositionContent.BLOCK, board.getPositionContent(2, 2));
+        assertEquals(SnowballType.SMALL, board.toState().ball(2));
+    }
+
+    @Test
+    @DisplayName("Malformed maps are reported with their line and column")
+    void testErrors() {
+        MapReader reader = new MapReader();
+
+        MapFormatException longer = assertThrows(MapFormatException.class,
+                () -> load(reader, "Longer\nM S S\nS S S X\n"));
+        assertEquals(3, longer.getLine());
+        assertEquals(7, longer.getColumn());
+
+        MapFormatException shorter = assertThrows(MapFormatException.class,
+                () -> load(reader, "Shorter\r\nM S S\r\n  S  S\r\n"));
+        assertEquals(3, shorter.getLine());
+        assertEquals(7, shorter.getColumn());
+        assertTrue(shorter.getMessage().contains("linha 3, coluna 7"));
+
+        MapFormatException empty = assertThrows(MapFormatException.class, () -> load(reader, ""));
+        assertEquals(1, empty.getLine());
+        assertThrows(MapFormatException.class, () -> load(reader, "No cells\n \n"));
+    }
+
+    @Test
+    @DisplayName("Compiled maps load like the text maps they come from")
+    void testCompiledMaps() throws IOException {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            MapTemplate template;
+            try (InputStream in = getClass().getResourceAsStream(map)) {
+                template = MapTokenizer.tokenize(in, map).toTemplate();
+            }
+            byte[] compiled = MapCompiler.compile(template);
+            assertEquals(template, MapCompiler.decode(ByteBuffer.wrap(compiled), map));
+
+            // The shipped compiled map is up to date with the text map
+            String compiledPath = map.replace(".txt", MapCompiler.EXTENSION);
+            try (InputStream in = getClass().getResourceAsStream(compiledPath)) {
+                assertArrayEquals(compiled, in.readAllBytes());
+            }
+
+            MapReader reader = new MapReader();
+            BoardModel text = reader.loadMapFromFile(map);
+            BoardModel level = reader.loadLevel(map);
+            assertEquals(template.getName(), reader.getMapName());
+            assertEquals(text.toState(), level.toState());
+            assertEquals(text.toState(), reader.loadMapFromFile(compiledPath).toState());
+        }
+    }
+
+    @Test
+    @DisplayName("Corrupted compiled maps are rejected")
+    void testCorruptedCompiledMap() throws IOException {
+        MapTemplate template = MapTokenizer.tokenize(stream("Tiny\nM SB\nS SB\n"), "tiny.txt").toTemplate();
+        byte[] compiled = MapCompiler.compile(template);
+        assertEquals(template, MapCompiler.decode(ByteBuffer.wrap(compiled), "tiny.smap"));
+
+        compiled[compiled.length - 1] ^= 1;
+        assertThrows(RuntimeException.class, () -> MapCompiler.decode(ByteBuffer.wrap(compiled), "tiny.smap"));
+        assertThrows(RuntimeException.class,
+                () -> MapCompiler.decode(ByteBuffer.wrap(Arrays.copyOf(compiled, 20)), "tiny.smap"));
+    }
+
+    /**
+     * Generates a random map larger than the tokenizer's buffer and checks it is read like
+     * the symbol parser reads it. The read speed is measured by MapTokenizer.main.
+     */
+    @Test
+    @DisplayName("Maps larger than the read buffer are read in one pass")
+    void testLargeMap() throws IOException {
+        int rows = 120;
+        int cols = 250;
+        String[] symbols = {"S", "B", "X", "SB"};
+        Random random = new Random(7);
+        String[][] map = new String[rows][cols];
+        StringBuilder text = new StringBuilder("Large\n");
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                map[row][col] = row == 0 && col == 0 ? "M" : symbols[random.nextInt(symbols.length)];
+                text.append(map[row][col]).append(' ');
+            }
+            text.append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        assertTrue(bytes.length > 1 << 16);
+
+        MapTokenizer tokenizer = MapTokenizer.tokenize(new ByteArrayInputStream(bytes), "large.txt");
+        assertEquals(rows, tokenizer.rows());
+        assertEquals(cols, tokenizer.cols());
+        assertEquals(0, tokenizer.monsterCell());
+        assertEquals(MapValidator.contentHash(map), tokenizer.contentHash());
+        assertEquals(new MapReader().parseMap(map, "Large").toState(), tokenizer.toBoardModel().toState());
+    }
+}
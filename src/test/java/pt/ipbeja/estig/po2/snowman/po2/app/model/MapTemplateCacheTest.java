@@ -0,0 +1,63 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the cache of parsed maps.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class MapTemplateCacheTest {
+
+    @Test
+    @DisplayName("Maps are read once and stamp independent boards")
+    void testHitsAndFreshBoards() {
+        MapTemplateCache cache = new MapTemplateCache();
+        MapReader reader = new MapReader();
+
+        BoardModel first = reader.loadLevel(cache, "/map1.txt");
+        assertEquals("Snowy garden", reader.getMapName());
+        first.moveMonster(Direction.RIGHT);
+        BoardModel second = reader.loadLevel(cache, "/map1.txt");
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(reader.loadMapFromFile("/map1.txt").toState(), second.toState());
+        assertNotEquals(first.toState(), second.toState());
+        assertSame(cache.get("/map1.txt"), cache.get("/map1.txt"));
+    }
+
+    @Test
+    @DisplayName("The least recently used map is evicted")
+    void testEviction() {
+        List<String> reads = new ArrayList<>();
+        MapReader reader = new MapReader();
+        MapTemplateCache cache = new MapTemplateCache(2, path -> {
+            reads.add(path);
+            return reader.loadTemplate(path);
+        });
+
+        cache.get("/map1.txt");
+        cache.get("/map2.txt");
+        cache.get("/map1.txt");          // map2 is now the least recently used
+        cache.get("/map1.smap");         // evicts map2
+        assertTrue(cache.contains("/map1.txt"));
+        assertFalse(cache.contains("/map2.txt"));
+        cache.get("/map2.txt");          // read again, evicts map1.txt
+
+        assertEquals(List.of("/map1.txt", "/map2.txt", "/map1.smap", "/map2.txt"), reads);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertThrows(IllegalArgumentException.class, () -> new MapTemplateCache(0));
+    }
+}
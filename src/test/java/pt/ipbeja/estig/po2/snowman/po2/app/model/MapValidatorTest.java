@@ -0,0 +1,96 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the solvability check MapReader runs on the maps it loads.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class MapValidatorTest {
+
+    @Test
+    @DisplayName("The shipped map is solvable and its verdict is cached")
+    void testSolvableMapIsCached() throws Exception {
+        MapReader reader = new MapReader();
+        reader.setValidation(10_000);
+        reader.loadMapFromFile("/map1.txt");
+        MapValidation validation = reader.getValidation().get(15, TimeUnit.SECONDS);
+
+        assertEquals(MapValidation.Verdict.SOLVABLE, validation.getVerdict());
+        assertEquals(18, validation.getMoves());
+        assertTrue(validation.isOptimal());
+
+        reader.loadMapFromFile("/map1.txt");
+        Future<MapValidation> again = reader.getValidation();
+        assertTrue(again.isDone());
+        assertSame(validation, again.get());
+    }
+
+    @Test
+    @DisplayName("Broken maps are unsolvable without a search")
+    void testBrokenMaps() throws Exception {
+        MapReader reader = new MapReader();
+        reader.setValidation(1_000);
+
+        reader.parseMap(new String[][]{
+                {"X", "X", "X", "X", "X"},
+                {"X", "SB", "S", "S", "X"},
+                {"X", "SB", "S", "S", "X"},
+                {"X", "SB", "S", "S", "X"},
+                {"X", "X", "X", "X", "X"}}, "No monster");
+        MapValidation validation = reader.getValidation().get(5, TimeUnit.SECONDS);
+        assertEquals(MapValidation.Verdict.UNSOLVABLE, validation.getVerdict());
+        assertEquals(List.of("Mapa sem monstro (M)"), validation.getProblems());
+
+        reader.parseMap(new String[][]{{"M", "X", "SB"}, {"X", "SB", "SB"}}, "No snow");
+        validation = reader.getValidation().get(5, TimeUnit.SECONDS);
+        assertEquals(MapValidation.Verdict.UNSOLVABLE, validation.getVerdict());
+        assertEquals(-1, validation.getMoves());
+        assertFalse(validation.getProblems().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A search that runs out of time is not cached")
+    void testUnknownIsNotCached() throws Exception {
+        String[][] map = new String[24][24];
+        for (String[] row : map) {
+            Arrays.fill(row, "S");
+        }
+        map[0][0] = "M";
+        map[5][5] = "SB";
+        map[12][18] = "SB";
+        map[20][7] = "SB";
+        MapReader reader = new MapReader();
+        reader.setValidation(1);
+
+        reader.parseMap(map, "Open field");
+        int cached = MapValidator.cacheSize();
+        MapValidation validation = reader.getValidation().get(5, TimeUnit.SECONDS);
+        assertEquals(MapValidation.Verdict.UNKNOWN, validation.getVerdict());
+        assertEquals(cached, MapValidator.cacheSize());
+
+        reader.parseMap(map, "Open field");
+        MapValidation again = reader.getValidation().get(5, TimeUnit.SECONDS);
+        assertNotSame(validation, again);
+        assertEquals(cached, MapValidator.cacheSize());
+    }
+
+    @Test
+    @DisplayName("Validation is off by default")
+    void testValidationOff() {
+        MapReader reader = new MapReader();
+        reader.loadMapFromFile("/map2.txt");
+        assertNull(reader.getValidation());
+    }
+}
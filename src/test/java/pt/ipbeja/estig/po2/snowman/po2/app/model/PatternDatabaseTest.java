@@ -0,0 +1,111 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the pattern database and the A* search using it.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class PatternDatabaseTest {
+
+    /**
+     * Costs account for the snow a snowball needs to grow. On a 3x6 board with snow on
+     * the middle row:
+     * . . . . . .
+     * . . S S . .
+     * . . . . . .
+     */
+    @Test
+    @DisplayName("Costs count the pushes needed to grow")
+    void testCosts() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 6; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        content.get(1).set(2, PositionContent.SNOW);
+        content.get(1).set(3, PositionContent.SNOW);
+        SnowmanState map = new BoardModel(content, new Monster(0, 0), new ArrayList<>()).toState();
+        PatternDatabase database = PatternDatabase.build(map);
+        int all = database.snowMask(map);
+
+        assertEquals(2, database.trackedSnow());
+        assertEquals(0b11, all);
+        // A SMALL on (1,1) pushed right becomes BIG on (1,3) after two pushes
+        assertEquals(2, database.cost(2, map.cell(1, 3), map.cell(1, 1), 0, all));
+        // Without snow left it can never grow
+        assertEquals(DistanceTable.UNREACHABLE, database.cost(2, map.cell(1, 4), map.cell(1, 1), 0, 0));
+        // It may stay SMALL over snow another snowball took first
+        assertEquals(3, database.cost(0, map.cell(1, 4), map.cell(1, 1), 0, all));
+        // A snowball never shrinks
+        assertEquals(DistanceTable.UNREACHABLE, database.cost(0, map.cell(1, 4), map.cell(1, 1), 1, all));
+    }
+
+    /**
+     * A database written to a file and memory-mapped back gives A* optimal solutions with
+     * no more expansions than the plain heuristic, and never overestimates.
+     */
+    @Test
+    @DisplayName("A* with a memory-mapped pattern database is optimal")
+    void testAStarWithPatternDatabase(@TempDir Path directory) throws IOException {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            BoardModel board = new MapReader().loadMapFromFile(map);
+            Path file = directory.resolve(map.substring(1).replace(".txt", PatternDatabase.EXTENSION));
+            PatternDatabase.build(board.toState()).write(file);
+            PatternDatabase database = PatternDatabase.load(file);
+            assertTrue(database.matches(board.toState()));
+
+            Solution bfs = new BreadthFirstSolver().solve(board);
+            Solution plain = new AStarSolver().solve(board);
+            Solution withDatabase = new AStarSolver(new PatternDatabaseHeuristic(database)).solve(board);
+
+            assertTrue(withDatabase.isSolved());
+            assertEquals(bfs.getMoveCount(), withDatabase.getMoveCount());
+            assertTrue(withDatabase.getNodesExpanded() <= plain.getNodesExpanded());
+
+            PatternDatabaseHeuristic heuristic = new PatternDatabaseHeuristic(database);
+            SnowmanHeuristic baseline = new SnowmanHeuristic();
+            SnowmanState state = board.toState();
+            List<Direction> moves = bfs.getMoves();
+            for (int i = 0; i < moves.size(); i++) {
+                int estimate = heuristic.estimate(state);
+                assertTrue(estimate <= moves.size() - i);
+                assertTrue(estimate >= baseline.estimate(state));
+                SnowmanRules.step(state, moves.get(i));
+            }
+            assertEquals(0, heuristic.estimate(state));
+        }
+    }
+
+    /**
+     * The builder reads maps from the given directory, not from the classpath, and skips
+     * the maps too large for a database.
+     */
+    @Test
+    @DisplayName("The builder reads maps from its directory and skips large ones")
+    void testMain(@TempDir Path directory) throws IOException {
+        Files.writeString(directory.resolve("small.txt"), "Small\nM S SB X\nX SB S SB\n");
+        Files.writeString(directory.resolve("large.txt"), "Large\nM" + " X".repeat(2999) + "\n");
+        PatternDatabase.main(new String[]{directory.toString()});
+
+        PatternDatabase database = PatternDatabase.load(directory.resolve("small" + PatternDatabase.EXTENSION));
+        assertEquals(2, database.trackedSnow());
+        assertFalse(Files.exists(directory.resolve("large" + PatternDatabase.EXTENSION)));
+    }
+}
@@ -0,0 +1,236 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the solvers, checking that the shipped maps are solvable and that
+ * the solutions found actually build the snowman when played on a BoardModel.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class SolverTest {
+
+    /**
+     * Plays the moves on the board and checks that a complete snowman was built.
+     */
+    private void assertBuildsSnowman(BoardModel board, Solution solution) {
+        for (Direction direction : solution.getMoves()) {
+            board.moveMonster(direction);
+        }
+        assertTrue(SnowmanRules.isSolved(board.toState()), "the moves should build the snowman");
+    }
+
+    /**
+     * Without a heuristic A* finds a solution on map1 well before it can prove it optimal;
+     * stopping it in between still returns that solution.
+     */
+    @Test
+    @DisplayName("A* stopped by its limit returns the solution it found")
+    void testAStarAnytime() {
+        BoardModel board = new MapReader().loadMapFromFile("/map1.txt");
+        SnowmanState start = board.toState();
+        Solution complete = new AStarSolver(state -> 0).solve(start);
+        assertTrue(complete.isSolved());
+
+        Solver solver = new AStarSolver(state -> 0);
+        solver.setMaxStates((int) complete.getStatesExplored() - 1);
+        Solution stopped = solver.solve(start);
+
+        assertEquals(Solution.Status.LIMIT_REACHED, stopped.getStatus());
+        assertFalse(stopped.isSolved());
+        assertTrue(stopped.hasMoves());
+        assertTrue(stopped.getMoveCount() >= complete.getMoveCount());
+        assertBuildsSnowman(board, stopped);
+
+        solver.setMaxStates(2);
+        assertFalse(solver.solve(start).hasMoves());
+    }
+
+    @Test
+    @DisplayName("BFS solves the shipped maps")
+    void testBreadthFirstSolvesMaps() {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            BoardModel board = new MapReader().loadMapFromFile(map);
+            Solution solution = new BreadthFirstSolver().solve(board);
+
+            assertTrue(solution.isSolved());
+            assertTrue(solution.getMonsterMoves() <= solution.getMoveCount());
+            assertBuildsSnowman(board, solution);
+        }
+    }
+
+    /**
+     * A* finds solutions as short as BFS while expanding fewer states, and its heuristic
+     * never overestimates along an optimal solution.
+     */
+    @Test
+    @DisplayName("A* is optimal and expands fewer states")
+    void testAStarMatchesBreadthFirst() {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            BoardModel board = new MapReader().loadMapFromFile(map);
+            Solution bfs = new BreadthFirstSolver().solve(board);
+            Solution astar = new AStarSolver().solve(board);
+
+            assertTrue(astar.isSolved());
+            assertEquals(bfs.getMoveCount(), astar.getMoveCount());
+            assertTrue(astar.getNodesExpanded() < bfs.getNodesExpanded());
+
+            // The estimate is a lower bound on the moves left at every step of an optimal solution
+            SnowmanHeuristic heuristic = new SnowmanHeuristic();
+            SnowmanState state = board.toState();
+            List<Direction> moves = bfs.getMoves();
+            for (int i = 0; i < moves.size(); i++) {
+                assertTrue(heuristic.estimate(state) <= moves.size() - i);
+                SnowmanRules.step(state, moves.get(i));
+            }
+            assertEquals(0, heuristic.estimate(state));
+            assertBuildsSnowman(board, astar);
+        }
+    }
+
+    /**
+     * IDA* finds solutions as short as BFS, with thresholds growing at every iteration.
+     */
+    @Test
+    @DisplayName("IDA* is optimal")
+    void testIdaStarMatchesBreadthFirst() {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            BoardModel board = new MapReader().loadMapFromFile(map);
+            Solution bfs = new BreadthFirstSolver().solve(board);
+            IdaStarSolver solver = new IdaStarSolver();
+            Solution idaStar = solver.solve(board);
+
+            assertTrue(idaStar.isSolved());
+            assertEquals(bfs.getMoveCount(), idaStar.getMoveCount());
+            List<IdaStarSolver.Iteration> iterations = solver.getIterations();
+            for (int i = 1; i < iterations.size(); i++) {
+                assertTrue(iterations.get(i).getThreshold() > iterations.get(i - 1).getThreshold());
+            }
+            assertEquals(idaStar.getMoveCount(), iterations.get(iterations.size() - 1).getThreshold());
+            assertBuildsSnowman(board, idaStar);
+        }
+    }
+
+    /**
+     * Searching over pushes stores far fewer states than searching over single moves,
+     * and its macro moves expand into a playable solution.
+     */
+    @Test
+    @DisplayName("Push-level search solves the maps with fewer states")
+    void testPushSolver() {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            BoardModel board = new MapReader().loadMapFromFile(map);
+            Solution bfs = new BreadthFirstSolver().solve(board);
+            Solution pushes = new PushSolver().solve(board);
+
+            assertTrue(pushes.isSolved());
+            assertTrue(pushes.getMoveCount() >= bfs.getMoveCount());
+            assertTrue(pushes.getStatesExplored() * 10 < bfs.getStatesExplored());
+            assertBuildsSnowman(board, pushes);
+        }
+    }
+
+    /**
+     * The portfolio returns the first answer, or the shortest one when waiting for the
+     * best, and logs the winner of every map.
+     */
+    @Test
+    @DisplayName("Portfolio races the strategies")
+    void testPortfolio() {
+        PortfolioSolver portfolio = new PortfolioSolver();
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            Solution first = portfolio.solve(map);
+            assertTrue(first.isSolved());
+            assertNotNull(portfolio.getWinner());
+            assertBuildsSnowman(new MapReader().loadMapFromFile(map), first);
+        }
+
+        portfolio.setWaitForBest(true);
+        Solution best = portfolio.solve("/map1.txt");
+        assertEquals(18, best.getMoveCount());
+        assertEquals(3, portfolio.getLog().size());
+        assertEquals(3, portfolio.getWins().values().stream().mapToInt(Integer::intValue).sum());
+
+        // A cancelled strategy gives up at once
+        Solver bfs = new BreadthFirstSolver();
+        bfs.cancel();
+        assertEquals(Solution.Status.LIMIT_REACHED,
+                bfs.solve(new MapReader().loadMapFromFile("/map1.txt")).getStatus());
+    }
+
+    /**
+     * The parallel BFS returns exactly the moves of the sequential one, whatever the
+     * number of threads.
+     */
+    @Test
+    @DisplayName("Parallel BFS is deterministic")
+    void testParallelMatchesBreadthFirst() {
+        for (String map : new String[]{"/map1.txt", "/map2.txt"}) {
+            BoardModel board = new MapReader().loadMapFromFile(map);
+            Solution bfs = new BreadthFirstSolver().solve(board);
+            for (int threads : new int[]{1, 4}) {
+                Solution parallel = new ParallelBreadthFirstSolver(threads).solve(board);
+
+                assertTrue(parallel.isSolved());
+                assertEquals(bfs.getMoves(), parallel.getMoves());
+            }
+            assertBuildsSnowman(board, bfs);
+        }
+    }
+
+    /**
+     * A board whose only snowball cannot reach anything is reported as unsolvable
+     * once every state was explored.
+     */
+    @Test
+    @DisplayName("BFS reports unsolvable maps")
+    void testBreadthFirstUnsolvable() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<PositionContent> row = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                row.add(PositionContent.NO_SNOW);
+            }
+            content.add(row);
+        }
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(1, 1, SnowballType.SMALL));
+        BoardModel board = new BoardModel(content, new Monster(0, 0), snowballs);
+
+        Solution solution = new BreadthFirstSolver().solve(board);
+
+        assertEquals(Solution.Status.UNSOLVABLE, solution.getStatus());
+        assertTrue(solution.getMoves().isEmpty());
+    }
+
+    /**
+     * A stack in front of the monster is completed with a single push: SMALL onto BIG_MID.
+     */
+    @Test
+    @DisplayName("BFS finds the shortest solution")
+    void testBreadthFirstShortest() {
+        List<List<PositionContent>> content = new ArrayList<>();
+        List<PositionContent> row = new ArrayList<>();
+        for (int j = 0; j < 5; j++) {
+            row.add(PositionContent.NO_SNOW);
+        }
+        content.add(row);
+        List<Snowball> snowballs = new ArrayList<>();
+        snowballs.add(new Snowball(0, 2, SnowballType.SMALL));
+        snowballs.add(new Snowball(0, 3, SnowballType.BIG_MID));
+        BoardModel board = new BoardModel(content, new Monster(0, 0), snowballs);
+
+        Solution solution = new BreadthFirstSolver().solve(board);
+
+        assertEquals(List.of(Direction.RIGHT, Direction.RIGHT), solution.getMoves());
+        assertEquals(2, solution.getMonsterMoves());
+    }
+}
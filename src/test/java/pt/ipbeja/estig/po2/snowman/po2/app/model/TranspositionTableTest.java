@@ -0,0 +1,120 @@
+package pt.ipbeja.estig.po2.snowman.po2.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.ipbeja.estig.po2.snowman.app.model.*;
+import pt.ipbeja.estig.po2.snowman.app.model.TranspositionTable.ReplacementPolicy;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the off-heap TranspositionTable and the BoundedExplorer built on it.
+ *
+ * @author João Silva
+ * @author Paulo Neves
+ */
+public class TranspositionTableTest {
+
+    @Test
+    @DisplayName("Stores, finds and counts states")
+    void testPutAndGet() {
+        TranspositionTable table = new TranspositionTable(1 << 20, ReplacementPolicy.NEVER);
+        assertEquals(1 << 16, table.capacity());
+
+        assertTrue(table.put(42, 7, 1));
+        assertTrue(table.put(0, 3, 1));
+        assertEquals(7, table.get(42));
+        assertEquals(3, table.get(0));
+        assertEquals(TranspositionTable.NOT_FOUND, table.get(43));
+        assertTrue(table.put(42, 8, 2));
+        assertEquals(8, table.get(42));
+
+        assertEquals(2, table.size());
+        assertEquals(3, table.getHits());
+        assertEquals(1, table.getMisses());
+        table.clear();
+        assertEquals(0, table.size());
+        assertFalse(table.contains(42));
+    }
+
+    /**
+     * A single bucket holds four states; the policies decide what happens to a fifth one.
+     */
+    @Test
+    @DisplayName("Replacement policies on a full bucket")
+    void testReplacementPolicies() {
+        for (ReplacementPolicy policy : ReplacementPolicy.values()) {
+            TranspositionTable table = new TranspositionTable(64, policy);
+            for (int i = 1; i <= 4; i++) {
+                assertTrue(table.put(i, i, i));
+            }
+            boolean stored = table.put(5, 5, 3);
+            switch (policy) {
+                case NEVER -> {
+                    assertFalse(stored);
+                    assertEquals(1, table.getRejections());
+                }
+                case ALWAYS -> assertTrue(stored);
+                case DEPTH_PREFERRED -> {
+                    // The shallowest entry is evicted, and a shallower state is not stored
+                    assertTrue(stored);
+                    assertFalse(table.contains(1));
+                    assertFalse(table.put(6, 6, 0));
+                }
+            }
+            assertEquals(4, table.size());
+        }
+    }
+
+    @Test
+    @DisplayName("The explorer visits every reachable state once")
+    void testExplorer() {
+        BoardModel board = new MapReader().loadMapFromFile("/map2.txt");
+        BoundedExplorer explorer = new BoundedExplorer(1 << 24, ReplacementPolicy.NEVER);
+        BoundedExplorer.Result result = explorer.explore(board, 30_000);
+
+        // The same bounded breadth-first search with a HashSet of states
+        SnowmanState start = board.toState();
+        Set<SnowmanState> visited = new HashSet<>();
+        Queue<SnowmanState> queue = new ArrayDeque<>();
+        visited.add(start);
+        queue.add(start);
+        while (!queue.isEmpty() && visited.size() < 30_000) {
+            SnowmanState state = queue.poll();
+            if (SnowmanRules.isSolved(state)) continue;
+            for (Direction direction : Direction.values()) {
+                SnowmanState next = state.copy();
+                if (SnowmanRules.step(next, direction) != SnowmanRules.BLOCKED && visited.add(next)) {
+                    queue.add(next);
+                    if (visited.size() == 30_000) break;
+                }
+            }
+        }
+
+        assertEquals(visited.size(), result.getStates());
+        assertEquals(result.getStates(), result.getTable().size());
+        assertTrue(result.getTable().getHits() > 0);
+        assertTrue(result.getStatesPerSecond() > 0);
+        assertEquals(0, result.getRejected());
+    }
+
+    @Test
+    @DisplayName("States a full table refuses are counted as rejected and not explored")
+    void testExplorerOnTinyTable() {
+        BoardModel board = new MapReader().loadMapFromFile("/map2.txt");
+        BoundedExplorer explorer = new BoundedExplorer(1024, ReplacementPolicy.NEVER);
+        BoundedExplorer.Result result = explorer.explore(board, 30_000);
+
+        assertTrue(result.getRejected() > 0);
+        assertEquals(result.getTable().getRejections(), result.getRejected());
+        assertEquals(result.getTable().size(), result.getStates());
+        assertTrue(result.getStates() <= result.getTable().capacity());
+        assertTrue(result.getExpanded() <= result.getStates());
+        assertTrue(result.getBytesPerState() >= TranspositionTable.ENTRY_BYTES);
+    }
+}